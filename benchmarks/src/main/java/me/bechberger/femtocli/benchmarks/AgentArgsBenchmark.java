@@ -0,0 +1,89 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java agent style invocations ({@code -javaagent:agent.jar=start,interval=1ms,...}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentArgsBenchmark {
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+
+    @Command(name = "agent", subcommands = {Start.class, Stop.class})
+    public static class Agent implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "start", description = "Start recording")
+    public static class Start implements Runnable {
+        @Option(names = "--interval", defaultValue = "10ms", description = "Sampling interval")
+        Duration interval;
+        @Option(names = "--duration", defaultValue = "0s", description = "Recording duration")
+        Duration duration;
+        @Option(names = "--file", defaultValue = "profile.jfr", description = "Output file")
+        String file;
+        @Option(names = "--depth", defaultValue = "64", description = "Maximum stack depth")
+        int depth;
+        @Option(names = {"-v", "--verbose"}, description = "Verbose output")
+        boolean verbose;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "stop", description = "Stop recording")
+    public static class Stop implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    private static final String SHORT = "stop";
+    private static final String TYPICAL = "start,interval=1ms,duration=30s,file=/tmp/profile.jfr,depth=128,verbose";
+    private static final String QUOTED = "start,file='/tmp/a,b.jfr',interval=1ms";
+
+    @Benchmark
+    public Object parseShort() {
+        return FemtoCli.parseAgent(Agent.class, SHORT);
+    }
+
+    @Benchmark
+    public Object parseTypical() {
+        return FemtoCli.parseAgent(Agent.class, TYPICAL);
+    }
+
+    @Benchmark
+    public Object parseQuoted() {
+        return FemtoCli.parseAgent(Agent.class, QUOTED);
+    }
+
+    @Benchmark
+    public int runTypical() {
+        return FemtoCli.runAgent(Agent.class, NULL, NULL, TYPICAL);
+    }
+}
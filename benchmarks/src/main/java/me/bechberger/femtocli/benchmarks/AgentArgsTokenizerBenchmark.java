@@ -0,0 +1,74 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting long agent args strings (like include/exclude lists) into argv, without running a command.
+ *
+ * <p>{@code plain} inputs are {@code include=com.example.pkgN.*} tokens, {@code quoted} ones
+ * additionally use quotes and escapes ({@code include='com.example,pkgN'} and {@code a\=b}),
+ * which go through the tokenizer's buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentArgsTokenizerBenchmark {
+
+    @Param({"1024", "65536"})
+    int size;
+
+    @Param({"plain", "quoted"})
+    String style;
+
+    private String input;
+    private CharBuffer buffer;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("start");
+        // length after the last token that fits, so that the input never ends in a quote or escape
+        int fits = sb.length();
+        for (int i = 0; sb.length() < size; i++) {
+            fits = sb.length();
+            sb.append(',');
+            if (style.equals("plain")) {
+                sb.append("include=com.example.pkg").append(i).append(".*");
+            } else if (i % 2 == 0) {
+                sb.append("include='com.example, pkg").append(i).append("'");
+            } else {
+                sb.append(" exclude=a\\=b").append(i).append("\\,c ");
+            }
+        }
+        if (sb.length() > size) sb.setLength(fits);
+        sb.append(",verbose");
+        input = sb.toString();
+        buffer = CharBuffer.wrap(input);
+    }
+
+    @Benchmark
+    public String[] string() {
+        return FemtoCli.agentArgsToArgv(input);
+    }
+
+    @Benchmark
+    public String[] charBuffer() {
+        return FemtoCli.agentArgsToArgv(buffer);
+    }
+}
@@ -0,0 +1,25 @@
+package me.bechberger.femtocli.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: runs JMH with the GC profiler, so that every result also
+ * reports the allocation rate ({@code gc.alloc.rate.norm} is bytes per operation).
+ * Passing any {@code -prof} option replaces the default profiler.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-prof") && !jmhArgs.contains("-h") && !jmhArgs.contains("-l")) {
+            jmhArgs.add(0, "-prof");
+            jmhArgs.add(1, "gc");
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,106 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing through a chain of {@code depth} nested subcommands, each with one option of its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepTreeBenchmark {
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+
+    @Param({"20"})
+    int depth;
+
+    private URLClassLoader loader;
+    private Class<?> root;
+    private String[] path;
+    private String[] pathWithOptions;
+    private String[] pathWithHelp;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder src = new StringBuilder();
+        src.append("package gen;\n")
+                .append("import me.bechberger.femtocli.annotations.Command;\n")
+                .append("import me.bechberger.femtocli.annotations.Option;\n")
+                .append("public class Deep {\n");
+        for (int i = 0; i < depth; i++) {
+            src.append("    @Command(name = \"l").append(i).append("\", description = \"Level ").append(i).append('"');
+            if (i + 1 < depth) src.append(", subcommands = L").append(i + 1).append(".class");
+            src.append(")\n    public static class L").append(i).append(" implements Runnable {\n")
+                    .append("        @Option(names = \"--o").append(i).append("\", defaultValue = \"0\")\n")
+                    .append("        int o;\n")
+                    .append("        public void run() {}\n    }\n");
+        }
+        src.append("}\n");
+
+        loader = Sources.compile("gen.Deep", src.toString());
+        root = loader.loadClass("gen.Deep$L0");
+        List<String> names = new ArrayList<>();
+        List<String> withOptions = new ArrayList<>();
+        withOptions.add("--o0");
+        withOptions.add("0");
+        for (int i = 1; i < depth; i++) {
+            names.add("l" + i);
+            withOptions.add("l" + i);
+            withOptions.add("--o" + i);
+            withOptions.add(String.valueOf(i));
+        }
+        path = names.toArray(new String[0]);
+        pathWithOptions = withOptions.toArray(new String[0]);
+        names.add("--help");
+        pathWithHelp = names.toArray(new String[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public Object parseLeaf() {
+        return FemtoCli.parse(root, path);
+    }
+
+    @Benchmark
+    public Object parseLeafWithOptions() {
+        return FemtoCli.parse(root, pathWithOptions);
+    }
+
+    @Benchmark
+    public int runLeaf() {
+        return FemtoCli.run(root, NULL, NULL, path);
+    }
+
+    @Benchmark
+    public int leafHelp() {
+        return FemtoCli.run(root, NULL, NULL, pathWithHelp);
+    }
+}
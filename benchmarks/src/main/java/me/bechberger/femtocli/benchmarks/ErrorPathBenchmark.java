@@ -0,0 +1,112 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Good versus bad input for the same command: help, version and usage errors are control flow
+ * inside the parser, so rejecting a command line should cost about as much as accepting one.
+ *
+ * <p>The {@code run*} benchmarks include printing the usage after an error (to a null stream),
+ * the {@code parse*} ones only the parser, where bad input surfaces as an {@link IllegalArgumentException}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+
+    @Command(name = "copy", description = "Copy files", version = "1.0", mixinStandardHelpOptions = true)
+    public static class Copy implements Runnable {
+        @Option(names = {"-n", "--count"}, defaultValue = "1", description = "Number of copies")
+        int count;
+        @Option(names = "--target", required = true, description = "Target directory")
+        String target;
+        @Option(names = {"-v", "--verbose"}, description = "Verbose output")
+        boolean verbose;
+        @Parameters(description = "Files to copy")
+        String[] files;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static final String[] GOOD = {"-n", "3", "--target", "out", "-v", "a.txt", "b.txt"};
+    private static final String[] UNKNOWN_OPTION = {"-n", "3", "--target", "out", "--verbos", "a.txt"};
+    private static final String[] INVALID_VALUE = {"-n", "three", "--target", "out", "a.txt"};
+    private static final String[] MISSING_VALUE = {"-n", "3", "a.txt", "--target"};
+    private static final String[] MISSING_REQUIRED = {"-n", "3", "-v", "a.txt", "b.txt"};
+
+    @Benchmark
+    public int runGood() {
+        return FemtoCli.run(new Copy(), NULL, NULL, GOOD);
+    }
+
+    @Benchmark
+    public int runUnknownOption() {
+        return FemtoCli.run(new Copy(), NULL, NULL, UNKNOWN_OPTION);
+    }
+
+    @Benchmark
+    public int runInvalidValue() {
+        return FemtoCli.run(new Copy(), NULL, NULL, INVALID_VALUE);
+    }
+
+    @Benchmark
+    public int runMissingValue() {
+        return FemtoCli.run(new Copy(), NULL, NULL, MISSING_VALUE);
+    }
+
+    @Benchmark
+    public int runMissingRequired() {
+        return FemtoCli.run(new Copy(), NULL, NULL, MISSING_REQUIRED);
+    }
+
+    @Benchmark
+    public int runVersion() {
+        return FemtoCli.run(new Copy(), NULL, NULL, "--version");
+    }
+
+    @Benchmark
+    public Object parseGood() {
+        return FemtoCli.parse(new Copy(), GOOD);
+    }
+
+    @Benchmark
+    public Object parseInvalidValue() {
+        try {
+            return FemtoCli.parse(new Copy(), INVALID_VALUE);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseMissingRequired() {
+        try {
+            return FemtoCli.parse(new Copy(), MISSING_REQUIRED);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
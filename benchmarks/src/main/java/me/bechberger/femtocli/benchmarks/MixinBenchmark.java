@@ -0,0 +1,107 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Mixin;
+import me.bechberger.femtocli.annotations.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A command that gets most of its options from several mixins.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixinBenchmark {
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+
+    public static class Logging {
+        @Option(names = {"-v", "--verbose"}, description = "Verbose output")
+        boolean verbose;
+        @Option(names = {"-q", "--quiet"}, description = "No output")
+        boolean quiet;
+        @Option(names = "--log-file", description = "Log file")
+        Path logFile;
+    }
+
+    public static class Connection {
+        @Option(names = "--host", defaultValue = "localhost", description = "Host")
+        String host;
+        @Option(names = "--port", defaultValue = "8080", description = "Port")
+        int port;
+        @Option(names = "--timeout", defaultValue = "10s", description = "Timeout")
+        Duration timeout;
+    }
+
+    public static class Credentials {
+        @Option(names = "--user", defaultValue = "admin", description = "User")
+        String user;
+        @Option(names = "--password-file", description = "Password file")
+        Path passwordFile;
+    }
+
+    public static class Output {
+        @Option(names = {"-o", "--output"}, defaultValue = "out.txt", description = "Output file")
+        Path output;
+        @Option(names = "--format", defaultValue = "text", description = "Output format")
+        String format;
+        @Option(names = "--limit", defaultValue = "100", description = "Maximum number of results")
+        int limit;
+    }
+
+    @Command(name = "query", description = "Query the server")
+    public static class Query implements Runnable {
+        @Mixin
+        Logging logging;
+        @Mixin
+        Connection connection;
+        @Mixin
+        Credentials credentials;
+        @Mixin
+        Output output;
+        @Option(names = "--filter", description = "Filter expression")
+        String filter;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static final String[] ARGS = {
+            "-v", "--host", "example.org", "--port=9090", "--timeout", "30s", "--user", "bench",
+            "-o", "result.json", "--format", "json", "--limit", "5", "--filter", "status=open"
+    };
+
+    @Benchmark
+    public Object parse() {
+        return FemtoCli.parse(Query.class, ARGS);
+    }
+
+    @Benchmark
+    public Object parseDefaults() {
+        return FemtoCli.parse(Query.class);
+    }
+
+    @Benchmark
+    public int help() {
+        return FemtoCli.run(Query.class, NULL, NULL, "--help");
+    }
+}
@@ -0,0 +1,82 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding a huge number of positional values, e.g. from {@code tool files $(find .)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionalVarargsBenchmark {
+
+    @Command(name = "files")
+    public static class Files implements Runnable {
+        @Option(names = "--verbose")
+        boolean verbose;
+
+        @Parameters
+        List<String> files;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "numbers")
+    public static class Numbers implements Runnable {
+        @Parameters
+        int[] values;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Param({"1000", "100000"})
+    int count;
+
+    private String[] files;
+    private String[] numbers;
+
+    @Setup
+    public void setup() {
+        files = new String[count + 1];
+        numbers = new String[count];
+        files[0] = "--verbose";
+        for (int i = 0; i < count; i++) {
+            files[i + 1] = "src/main/java/File" + i + ".java";
+            numbers[i] = String.valueOf(i);
+        }
+    }
+
+    @Benchmark
+    public Object strings() {
+        return FemtoCli.parse(Files.class, files);
+    }
+
+    @Benchmark
+    public Object ints() {
+        return FemtoCli.parse(Numbers.class, numbers);
+    }
+}
@@ -0,0 +1,45 @@
+package me.bechberger.femtocli.benchmarks;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/** Compiles generated command classes for benchmarks whose shape depends on a {@code @Param}. */
+final class Sources {
+
+    private Sources() {
+    }
+
+    /** Compiles a single source file and returns a loader for the resulting classes. */
+    static URLClassLoader compile(String className, String source) throws IOException {
+        Path dir = Files.createTempDirectory("femtocli-bench");
+        Path file = dir.resolve("src").resolve(className.replace('.', '/') + ".java");
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(file.getParent());
+        Files.createDirectories(classes);
+        Files.writeString(file, source);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Benchmarks need a JDK (no system Java compiler found)");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fm = compiler.getStandardFileManager(diagnostics, null, null)) {
+            boolean ok = compiler.getTask(null, fm, diagnostics,
+                    List.of("-classpath", System.getProperty("java.class.path"), "-d", classes.toString()),
+                    null, fm.getJavaFileObjects(file)).call();
+            if (!ok) {
+                throw new IllegalStateException("Cannot compile " + className + ": " + diagnostics.getDiagnostics());
+            }
+        }
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, Sources.class.getClassLoader());
+    }
+}
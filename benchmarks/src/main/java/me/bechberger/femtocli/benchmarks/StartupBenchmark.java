@@ -0,0 +1,213 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.Spec;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup cost of example commands, each run in fresh JVMs (JMH cannot measure this).
+ *
+ * <p>For every example and JVM configuration this records the median over {@code --runs} runs of
+ * <ul>
+ *   <li>the wall time from process start to the first byte of output and to process exit,</li>
+ *   <li>the number of loaded classes ({@code -Xlog:class+load}),</li>
+ *   <li>the number of linked invokedynamic call sites, i.e. bootstrap method calls
+ *       ({@code -Xlog:methodhandles+indy}),</li>
+ *   <li>the used heap at exit ({@code -Xlog:gc+heap+exit}).</li>
+ * </ul>
+ * The class and indy logs slow down the JVM, so timings come from separate runs without logging.
+ *
+ * <pre>{@code
+ * java -cp target/benchmarks.jar me.bechberger.femtocli.benchmarks.StartupBenchmark \
+ *     --classpath ../examples/target/femtocli-examples.jar
+ * }</pre>
+ */
+@Command(name = "startup-benchmark", description = "Measure startup of example commands in fresh JVMs",
+        mixinStandardHelpOptions = true)
+public class StartupBenchmark implements Callable<Integer> {
+
+    private static final String EXAMPLES_PACKAGE = "me.bechberger.femtocli.examples.";
+    private static final Pattern USED_HEAP = Pattern.compile("total \\d+K, used (\\d+)K");
+
+    /** JVM configurations by name. {@code appcds} uses an archive created by a training run. */
+    private static final Map<String, List<String>> CONFIGS = new LinkedHashMap<>();
+
+    static {
+        CONFIGS.put("default", List.of());
+        CONFIGS.put("xshare-off", List.of("-Xshare:off"));
+        CONFIGS.put("appcds", List.of());
+        CONFIGS.put("c1", List.of("-XX:TieredStopAtLevel=1"));
+    }
+
+    @Option(names = "--classpath", required = true,
+            description = "Class path containing the examples and femtocli, e.g. examples/target/femtocli-examples.jar")
+    String classpath;
+
+    @Option(names = "--java", description = "Java executable (default: the one running this harness)")
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    @Option(names = "--runs", defaultValue = "10", description = "Timed runs per example and configuration")
+    int runs;
+
+    @Option(names = "--configs", split = ",", defaultValue = "default,xshare-off,appcds,c1",
+            description = "JVM configurations: default, xshare-off, appcds, c1")
+    List<String> configs;
+
+    @Parameters(description = "Example invocations like 'QuickStart greet --name World' "
+            + "(class names without package are examples)")
+    List<String> examples = new ArrayList<>();
+
+    Spec spec;
+
+    record Result(String example, String config, long firstOutputMicros, long exitMicros,
+                  long classes, long indy, long heapKb) {}
+
+    @Override
+    public Integer call() throws Exception {
+        if (runs < 1) {
+            spec.err().println("--runs must be at least 1");
+            return 2;
+        }
+        for (String config : configs) {
+            if (!CONFIGS.containsKey(config)) {
+                spec.err().println("Unknown configuration: " + config + ", expected one of " + CONFIGS.keySet());
+                return 2;
+            }
+        }
+        if (examples.isEmpty()) {
+            examples = List.of(
+                    "QuickStart greet --name World",
+                    "QuickStart --help",
+                    "AgentCli start,interval=1ms",
+                    "MixinsAndSubcommands a -v");
+        }
+        Path work = Files.createTempDirectory("femtocli-startup");
+        List<Result> results = new ArrayList<>();
+        for (String example : examples) {
+            List<String> command = command(example);
+            for (String config : configs) {
+                List<String> jvmArgs = new ArrayList<>(CONFIGS.get(config));
+                if (config.equals("appcds")) {
+                    Path archive = work.resolve(command.get(0) + "-" + results.size() + ".jsa");
+                    List<String> training = new ArrayList<>(List.of("-XX:ArchiveClassesAtExit=" + archive));
+                    training.addAll(command);
+                    run(training, work.resolve("training.log"));
+                    jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+                }
+                spec.err().println("Measuring " + example + " (" + config + ")");
+                results.add(measure(example, config, jvmArgs, command, work));
+            }
+        }
+        print(spec.out(), results);
+        return 0;
+    }
+
+    private static List<String> command(String example) {
+        List<String> words = new ArrayList<>(Arrays.asList(example.trim().split("\\s+")));
+        if (!words.get(0).contains(".")) {
+            words.set(0, EXAMPLES_PACKAGE + words.get(0));
+        }
+        return words;
+    }
+
+    private Result measure(String example, String config, List<String> jvmArgs, List<String> command, Path work)
+            throws IOException, InterruptedException {
+        long[] firstOutput = new long[runs];
+        long[] exit = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            List<String> args = new ArrayList<>(jvmArgs);
+            args.addAll(command);
+            long[] timing = run(args, null);
+            firstOutput[i] = timing[0];
+            exit[i] = timing[1];
+        }
+
+        Path classLog = work.resolve("classes.log");
+        Path indyLog = work.resolve("indy.log");
+        Path heapLog = work.resolve("heap.log");
+        List<String> args = new ArrayList<>(jvmArgs);
+        args.add("-Xlog:class+load=info:file=" + classLog);
+        args.add("-Xlog:methodhandles+indy=debug:file=" + indyLog);
+        args.add("-Xlog:gc+heap+exit=info:file=" + heapLog);
+        args.addAll(command);
+        run(args, null);
+
+        long classes;
+        long indy;
+        try (var lines = Files.lines(classLog)) {
+            classes = lines.count();
+        }
+        try (var lines = Files.lines(indyLog)) {
+            // bytecode 186 is invokedynamic, 233 would be invokehandle
+            indy = lines.filter(l -> l.contains("set_method_handle bc=186")).count();
+        }
+        long heapKb = 0;
+        Matcher matcher = USED_HEAP.matcher(Files.readString(heapLog));
+        while (matcher.find()) {
+            heapKb += Long.parseLong(matcher.group(1));
+        }
+        return new Result(example, config, median(firstOutput), median(exit), classes, indy, heapKb);
+    }
+
+    /**
+     * Runs {@code java args} and returns the microseconds until the first output byte
+     * (or exit, if there is none) and until exit.
+     */
+    private long[] run(List<String> args, Path log) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(java);
+        cmd.add("-cp");
+        cmd.add(classpath);
+        cmd.addAll(args);
+        ProcessBuilder builder = new ProcessBuilder(cmd).redirectErrorStream(true);
+        if (log != null) builder.redirectOutput(log.toFile());
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long firstOutput = -1;
+        try (InputStream in = process.getInputStream()) {
+            if (in.read() >= 0) firstOutput = System.nanoTime();
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        process.waitFor();
+        long end = System.nanoTime();
+        if (firstOutput < 0) firstOutput = end;
+        return new long[]{(firstOutput - start) / 1000, (end - start) / 1000};
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void print(PrintStream out, List<Result> results) {
+        out.println();
+        out.println("| Example | Config | First output (ms) | Exit (ms) | Classes | Indy call sites | Heap at exit (KB) |");
+        out.println("|---|---|---:|---:|---:|---:|---:|");
+        for (Result r : results) {
+            out.printf("| %s | %s | %.1f | %.1f | %d | %d | %d |%n", r.example(), r.config(),
+                    r.firstOutputMicros() / 1000.0, r.exitMicros() / 1000.0, r.classes(), r.indy(), r.heapKb());
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(FemtoCli.run(new StartupBenchmark(), args));
+    }
+}
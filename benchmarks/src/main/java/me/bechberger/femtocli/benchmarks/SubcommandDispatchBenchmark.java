@@ -0,0 +1,91 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of selecting a subcommand by name for commands with a growing number of subcommands.
+ *
+ * <p>Each fork compiles a root command with {@code count} nested subcommand classes and
+ * {@code count} {@code @Command} methods, then parses the first and the last of them.
+ * Lookup goes through a hash table, so both should cost the same regardless of {@code count}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubcommandDispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int count;
+
+    private URLClassLoader loader;
+    private Class<?> root;
+    private String firstClass;
+    private String lastClass;
+    private String lastMethod;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder src = new StringBuilder();
+        src.append("package gen;\n")
+                .append("import me.bechberger.femtocli.annotations.Command;\n")
+                .append("@Command(name = \"root\", subcommands = {");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) src.append(", ");
+            src.append("Root.Cmd").append(i).append(".class");
+        }
+        src.append("})\npublic class Root implements Runnable {\n    public void run() {}\n");
+        for (int i = 0; i < count; i++) {
+            src.append("    @Command(name = \"cmd").append(i).append("\")\n")
+                    .append("    public static class Cmd").append(i).append(" implements Runnable {\n")
+                    .append("        public void run() {}\n    }\n");
+            src.append("    @Command(name = \"m").append(i).append("\")\n")
+                    .append("    int m").append(i).append("() { return 0; }\n");
+        }
+        src.append("}\n");
+
+        loader = Sources.compile("gen.Root", src.toString());
+        root = loader.loadClass("gen.Root");
+        firstClass = "cmd0";
+        lastClass = "cmd" + (count - 1);
+        lastMethod = "m" + (count - 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public Object firstSubcommand() {
+        return FemtoCli.parse(root, firstClass);
+    }
+
+    @Benchmark
+    public Object lastSubcommand() {
+        return FemtoCli.parse(root, lastClass);
+    }
+
+    @Benchmark
+    public int lastMethodSubcommand() {
+        return FemtoCli.run(root, lastMethod);
+    }
+}
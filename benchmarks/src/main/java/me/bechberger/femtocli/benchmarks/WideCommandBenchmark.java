@@ -0,0 +1,110 @@
+package me.bechberger.femtocli.benchmarks;
+
+import me.bechberger.femtocli.FemtoCli;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, help rendering and the "did you mean" path for a single command with many options.
+ *
+ * <p>The command has {@code options} options of mixed types ({@code int}, {@code String},
+ * {@code boolean}, {@code long}), named {@code --opt0} to {@code --opt<options - 1>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WideCommandBenchmark {
+
+    private static final PrintStream NULL = new PrintStream(OutputStream.nullOutputStream());
+
+    @Param({"500"})
+    int options;
+
+    private URLClassLoader loader;
+    private Class<?> root;
+    private String[] fewArgs;
+    private String[] allArgs;
+    private String[] misspelledArgs;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder src = new StringBuilder();
+        src.append("package gen;\n")
+                .append("import me.bechberger.femtocli.annotations.Command;\n")
+                .append("import me.bechberger.femtocli.annotations.Option;\n")
+                .append("@Command(name = \"wide\", description = \"Command with many options\")\n")
+                .append("public class Wide implements Runnable {\n    public void run() {}\n");
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < options; i++) {
+            String type = switch (i % 4) {
+                case 0 -> "int";
+                case 1 -> "String";
+                case 2 -> "boolean";
+                default -> "long";
+            };
+            src.append("    @Option(names = \"--opt").append(i).append("\", description = \"Option ").append(i)
+                    .append(" of type ").append(type).append('"');
+            if (!type.equals("boolean")) {
+                src.append(", defaultValue = \"").append(type.equals("String") ? "value" : "0").append('"');
+            }
+            src.append(")\n    ").append(type).append(" opt").append(i).append(";\n");
+            all.add("--opt" + i);
+            if (!type.equals("boolean")) all.add(String.valueOf(i));
+        }
+        src.append("}\n");
+
+        loader = Sources.compile("gen.Wide", src.toString());
+        root = loader.loadClass("gen.Wide");
+        allArgs = all.toArray(new String[0]);
+        int last = options - 1 - (options - 1) % 4; // an int option
+        fewArgs = new String[]{"--opt0", "1", "--opt1=name", "--opt2", "--opt" + last, "42"};
+        misspelledArgs = new String[]{"--opt" + last + "x", "1"};
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public Object parseFew() {
+        return FemtoCli.parse(root, fewArgs);
+    }
+
+    @Benchmark
+    public Object parseAll() {
+        return FemtoCli.parse(root, allArgs);
+    }
+
+    @Benchmark
+    public int help() {
+        return FemtoCli.run(root, NULL, NULL, "--help");
+    }
+
+    /** Unknown option, which computes suggestions over all option names. */
+    @Benchmark
+    public int unknownOptionSuggestion() {
+        return FemtoCli.run(root, NULL, NULL, misspelledArgs);
+    }
+}
@@ -0,0 +1,57 @@
+package me.bechberger.femtocli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Client for {@link FemtoCliDaemon}. For shell use, prefer the {@code femtocli-client} script that
+ * ships with this module, which avoids starting a JVM per call.
+ *
+ * <p>Usage: {@code java -cp femtocli-daemon.jar me.bechberger.femtocli.daemon.DaemonClient SOCKET [ARGS...]}
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Run one invocation on the daemon listening at {@code socket}, passing the current working
+     * directory and environment, and copying its output to the given streams.
+     *
+     * @return the exit code of the command
+     */
+    public static int run(Path socket, List<String> args, OutputStream stdout, OutputStream stderr) throws IOException {
+        FemtoCliDaemon.Request request = new FemtoCliDaemon.Request(args,
+                Path.of("").toAbsolutePath().toString(), System.getenv());
+        return run(socket, request, stdout, stderr);
+    }
+
+    /** Run the given request on the daemon listening at {@code socket}. */
+    public static int run(Path socket, FemtoCliDaemon.Request request, OutputStream stdout, OutputStream stderr) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Protocol.writeRequest(new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))), request);
+            return Protocol.readResponse(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))),
+                    stdout, stderr);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: DaemonClient SOCKET [ARGS...]");
+            System.exit(2);
+        }
+        System.exit(run(Path.of(args[0]), Arrays.asList(args).subList(1, args.length), System.out, System.err));
+    }
+}
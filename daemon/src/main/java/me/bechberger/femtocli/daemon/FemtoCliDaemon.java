@@ -0,0 +1,348 @@
+package me.bechberger.femtocli.daemon;
+
+import me.bechberger.femtocli.CompiledCli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Serves CLI invocations of a {@link CompiledCli} from a long-running JVM over a Unix domain socket,
+ * so that only the first invocation pays for JVM startup and warm-up.
+ *
+ * <pre>{@code
+ * public static void main(String[] args) throws IOException {
+ *     CompiledCli cli = FemtoCli.builder().build(Tool.class);
+ *     FemtoCliDaemon.serve(cli, Path.of("/tmp/tool.sock"));
+ * }
+ * }</pre>
+ *
+ * and then, from a shell: {@code femtocli-client /tmp/tool.sock status --verbose}.
+ *
+ * <p>Each connection runs one invocation on a thread of a fixed size pool via
+ * {@link CompiledCli#run(PrintStream, PrintStream, String...)}, streaming
+ * {@link me.bechberger.femtocli.Spec#out}/{@link me.bechberger.femtocli.Spec#err} and the exit code back to the
+ * client; further clients wait until a thread is free. A client that does not send its request within the request
+ * timeout ({@link #DEFAULT_REQUEST_TIMEOUT} by default) is disconnected, so idle connections cannot hold a thread.
+ *
+ * <p>Commands must write through {@code Spec} (not {@link System#out}). The client's working directory and
+ * environment are <em>not</em> applied: relative paths, {@link System#getenv} and {@code user.dir} still see the
+ * daemon's own, so commands have to use {@link Request#cwdPath()} and {@link Request#env()} of
+ * {@link #currentRequest()} instead. Standard input is not forwarded.
+ *
+ * <p>Clients run the CLI as the user running the daemon, so only that user may connect: the socket file is created
+ * with permissions {@code 0600} (where the file system supports POSIX permissions) and connections from other
+ * users are closed where the peer's user is known. An existing file at the socket path is only replaced if it is a
+ * socket that no daemon listens on.
+ */
+public final class FemtoCliDaemon implements AutoCloseable {
+
+    /** One invocation as sent by the client. */
+    public record Request(List<String> args, String cwd, Map<String, String> env) {
+        public Request {
+            args = List.copyOf(args);
+            env = Map.copyOf(env);
+        }
+
+        /** The client's working directory. */
+        public Path cwdPath() {
+            return Path.of(cwd);
+        }
+    }
+
+    /** Default number of invocations served at the same time. */
+    public static final int DEFAULT_MAX_CONCURRENT = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /** Default time a client has to send its request after connecting. */
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<>();
+
+    private final CompiledCli cli;
+    private final Path socket;
+    private final ServerSocketChannel server;
+    /** The user running the daemon, or null if peers cannot be checked on this platform. */
+    private final UserPrincipal owner;
+    private final Thread acceptor;
+    private final ExecutorService handlers;
+    /** Free handler threads; the acceptor waits for one before accepting the next connection. */
+    private final Semaphore slots;
+    /** Closes connections whose request does not arrive within {@link #requestTimeout}. */
+    private final ScheduledExecutorService deadlines;
+    private final Duration requestTimeout;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private FemtoCliDaemon(CompiledCli cli, Path socket, int maxConcurrent, Duration requestTimeout) throws IOException {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+        }
+        if (requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("requestTimeout must be positive: " + requestTimeout);
+        }
+        this.requestTimeout = requestTimeout;
+        this.cli = Objects.requireNonNull(cli);
+        this.socket = socket;
+        removeStaleSocket(socket);
+        this.server = bindPrivately(socket);
+        this.owner = peerChecks(server) ? Files.getOwner(socket, LinkOption.NOFOLLOW_LINKS) : null;
+        this.slots = new Semaphore(maxConcurrent);
+        this.handlers = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+            Thread thread = new Thread(runnable, "femtocli-daemon-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "femtocli-daemon-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::acceptLoop, "femtocli-daemon " + socket.getFileName());
+        this.acceptor.setDaemon(true);
+    }
+
+    /** Start serving in the background; {@link #close()} stops the daemon and removes the socket file. */
+    public static FemtoCliDaemon start(CompiledCli cli, Path socket) throws IOException {
+        return start(cli, socket, DEFAULT_MAX_CONCURRENT);
+    }
+
+    /** Like {@link #start(CompiledCli, Path)}, serving at most {@code maxConcurrent} invocations at the same time. */
+    public static FemtoCliDaemon start(CompiledCli cli, Path socket, int maxConcurrent) throws IOException {
+        return start(cli, socket, maxConcurrent, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Like {@link #start(CompiledCli, Path, int)}, disconnecting clients that do not send their request within
+     * {@code requestTimeout}.
+     */
+    public static FemtoCliDaemon start(CompiledCli cli, Path socket, int maxConcurrent, Duration requestTimeout)
+            throws IOException {
+        FemtoCliDaemon daemon = new FemtoCliDaemon(cli, socket, maxConcurrent, requestTimeout);
+        daemon.acceptor.start();
+        return daemon;
+    }
+
+    /** Serve until the JVM exits (or the returned daemon of another thread is closed). */
+    public static void serve(CompiledCli cli, Path socket) throws IOException {
+        FemtoCliDaemon daemon = start(cli, socket);
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+        daemon.awaitClose();
+    }
+
+    /**
+     * The request being served on the current thread, or {@code null} outside the daemon.
+     * Commands have to use it to access the client's working directory and environment, which the daemon does not
+     * apply to its own process.
+     */
+    public static Request currentRequest() {
+        return CURRENT.get();
+    }
+
+    public Path socket() {
+        return socket;
+    }
+
+    /** Blocks until {@link #close()} is called. */
+    public void awaitClose() {
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes a socket file left behind by a daemon that is gone. Anything else at the path, including the socket
+     * of a running daemon, is left alone.
+     */
+    private static void removeStaleSocket(Path socket) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributes.isOther()) {
+            throw new FileAlreadyExistsException(socket.toString(), null, "not a socket");
+        }
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(UnixDomainSocketAddress.of(socket));
+            throw new FileAlreadyExistsException(socket.toString(), null, "another daemon is listening");
+        } catch (SocketException e) {
+            // nobody listens, so the socket is stale
+        }
+        Files.delete(socket);
+    }
+
+    /**
+     * Binds to {@code socket} without ever making it accessible to other users: the socket is created in a new
+     * directory only the owner can access, restricted to {@code 0600} and then moved into place.
+     */
+    private static ServerSocketChannel bindPrivately(Path socket) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        Path parent = socket.toAbsolutePath().getParent();
+        if (!Files.getFileStore(parent).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            return server;
+        }
+        // short names, as socket paths are limited to about 100 bytes
+        Path dir = Files.createTempDirectory(parent, ".fc",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Path bound = dir.resolve("s");
+        try {
+            server.bind(UnixDomainSocketAddress.of(bound));
+            Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+            Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            server.close();
+            Files.deleteIfExists(bound);
+            throw e;
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+        return server;
+    }
+
+    private static boolean peerChecks(ServerSocketChannel server) {
+        return server.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED);
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                slots.release();
+                return;
+            } catch (IOException e) {
+                slots.release();
+                if (!server.isOpen()) return;
+                continue;
+            }
+            try {
+                handlers.execute(() -> {
+                    try {
+                        handle(channel);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // closed meanwhile
+                slots.release();
+                closeQuietly(channel);
+                return;
+            }
+        }
+    }
+
+    /** Whether the peer is the user running the daemon; true if this cannot be checked. */
+    private boolean fromOwner(SocketChannel channel) throws IOException {
+        if (owner == null) return true;
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        return peer.user().getName().equals(owner.getName());
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            if (!fromOwner(channel)) return;
+            Request request = readRequest(channel);
+            Protocol.FrameWriter frames = new Protocol.FrameWriter(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            PrintStream out = new PrintStream(frames.stream(Protocol.OUT), true, StandardCharsets.UTF_8);
+            PrintStream err = new PrintStream(frames.stream(Protocol.ERR), true, StandardCharsets.UTF_8);
+            int exitCode;
+            CURRENT.set(request);
+            try {
+                exitCode = cli.run(out, err, request.args().toArray(new String[0]));
+            } catch (RuntimeException e) {
+                err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+                exitCode = 1;
+            } finally {
+                CURRENT.remove();
+            }
+            out.flush();
+            err.flush();
+            frames.exit(exitCode);
+        } catch (IOException e) {
+            // client went away or sent garbage; nothing to report to
+        }
+    }
+
+    /** Reads the request, closing the channel (which fails the read) if it does not arrive in time. */
+    private Request readRequest(SocketChannel channel) throws IOException {
+        ScheduledFuture<?> deadline;
+        try {
+            deadline = deadlines.schedule(() -> closeQuietly(channel), requestTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new ClosedChannelException(); // closed meanwhile
+        }
+        try {
+            return Protocol.readRequest(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+        acceptor.interrupt();
+        handlers.shutdown();
+        deadlines.shutdownNow();
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException ignored) {
+        }
+        closed.countDown();
+    }
+}
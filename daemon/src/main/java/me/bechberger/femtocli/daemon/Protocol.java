@@ -0,0 +1,173 @@
+package me.bechberger.femtocli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire format between {@link DaemonClient} (or the {@code femtocli-client} script) and {@link FemtoCliDaemon}.
+ *
+ * <p>All integers are big-endian, strings are an int byte length followed by UTF-8 bytes.
+ * <pre>
+ * request:  MAGIC, argc, argc * string, cwd, envc, envc * (key, value)
+ * response: frames of (byte kind, ...) where
+ *           OUT/ERR: int length, bytes
+ *           EXIT:    int exit code (last frame)
+ * </pre>
+ */
+final class Protocol {
+
+    static final int MAGIC = 0x46435031; // "FCP1"
+    static final byte OUT = 1;
+    static final byte ERR = 2;
+    static final byte EXIT = 3;
+
+    /** Upper bound for a single string, to reject garbage early. */
+    private static final int MAX_STRING = 16 * 1024 * 1024;
+    /** Upper bound for a whole request, so that many strings cannot add up to more than one may be. */
+    static final int MAX_REQUEST = 32 * 1024 * 1024;
+
+    private Protocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, FemtoCliDaemon.Request request) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(request.args().size());
+        for (String arg : request.args()) writeString(out, arg);
+        writeString(out, request.cwd());
+        out.writeInt(request.env().size());
+        for (Map.Entry<String, String> e : request.env().entrySet()) {
+            writeString(out, e.getKey());
+            writeString(out, e.getValue());
+        }
+        out.flush();
+    }
+
+    /** Reads a request of at most {@link #MAX_REQUEST} bytes. */
+    static FemtoCliDaemon.Request readRequest(DataInputStream in) throws IOException {
+        RequestReader reader = new RequestReader(in);
+        if (reader.readInt() != MAGIC) {
+            throw new IOException("Not a femtocli daemon request");
+        }
+        int argc = reader.readCount();
+        List<String> args = new ArrayList<>(Math.min(argc, 1024));
+        for (int i = 0; i < argc; i++) args.add(reader.readString());
+        String cwd = reader.readString();
+        int envc = reader.readCount();
+        Map<String, String> env = new LinkedHashMap<>();
+        for (int i = 0; i < envc; i++) env.put(reader.readString(), reader.readString());
+        return new FemtoCliDaemon.Request(args, cwd, env);
+    }
+
+    /** Reads the parts of a request, keeping track of its size. */
+    private static final class RequestReader {
+        private final DataInputStream in;
+        private int remaining = MAX_REQUEST;
+
+        RequestReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        int readInt() throws IOException {
+            take(Integer.BYTES);
+            return in.readInt();
+        }
+
+        /** A number of strings, each of which takes at least its length prefix. */
+        int readCount() throws IOException {
+            int count = readInt();
+            if (count < 0 || count > remaining / Integer.BYTES) {
+                throw new IOException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0 || length > MAX_STRING) {
+                throw new IOException("Invalid string length " + length);
+            }
+            take(length);
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void take(int bytes) throws IOException {
+            if (bytes > remaining) {
+                throw new IOException("Request larger than " + MAX_REQUEST + " bytes");
+            }
+            remaining -= bytes;
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Writes OUT/ERR/EXIT frames; shared by the stdout and stderr streams of one connection. */
+    static final class FrameWriter {
+        private final DataOutputStream out;
+
+        FrameWriter(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        synchronized void data(byte kind, byte[] b, int off, int len) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(len);
+            out.write(b, off, len);
+            out.flush();
+        }
+
+        synchronized void exit(int code) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+        }
+
+        /** An output stream that sends everything written to it as frames of the given kind. */
+        OutputStream stream(byte kind) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    data(kind, new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) data(kind, b, off, len);
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads response frames, copying OUT/ERR data to the given streams.
+     *
+     * @return the exit code
+     */
+    static int readResponse(DataInputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+        while (true) {
+            int kind = in.read();
+            if (kind < 0) throw new EOFException("Daemon closed the connection without an exit code");
+            if (kind == EXIT) return in.readInt();
+            int length = in.readInt();
+            if (length < 0) throw new IOException("Invalid frame length " + length);
+            byte[] data = new byte[length];
+            in.readFully(data);
+            OutputStream target = kind == ERR ? stderr : stdout;
+            target.write(data);
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package me.bechberger.femtocli.daemon;
+
+import me.bechberger.femtocli.CompiledCli;
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.Spec;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FemtoCliDaemonTest {
+
+    @TempDir
+    Path tmp;
+
+    @Command(name = "tool", subcommands = {Greet.class, Where.class}, mixinStandardHelpOptions = true)
+    static class Tool implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "greet")
+    static class Greet implements Callable<Integer> {
+        @Option(names = "--exit", defaultValue = "0")
+        int exit;
+
+        @Parameters
+        String name;
+
+        Spec spec;
+
+        @Override
+        public Integer call() {
+            spec.out().println("hello " + name);
+            spec.err().println("warn " + name);
+            return exit;
+        }
+    }
+
+    @Command(name = "where")
+    static class Where implements Runnable {
+        Spec spec;
+
+        @Override
+        public void run() {
+            FemtoCliDaemon.Request request = FemtoCliDaemon.currentRequest();
+            spec.out().println(request.cwd() + " " + request.env().get("GREETING"));
+        }
+    }
+
+    private record Result(int exitCode, String out, String err) {}
+
+    private static Result call(Path socket, FemtoCliDaemon.Request request) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exit = DaemonClient.run(socket, request, out, err);
+        return new Result(exit, out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8));
+    }
+
+    private static FemtoCliDaemon.Request request(String... args) {
+        return new FemtoCliDaemon.Request(List.of(args), "/work", Map.of("GREETING", "hi"));
+    }
+
+    @Test
+    void streamsOutputAndExitCode() throws Exception {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(cli, tmp.resolve("tool.sock"))) {
+            Result res = call(daemon.socket(), request("greet", "--exit", "3", "wörld"));
+            assertEquals(3, res.exitCode());
+            assertEquals("hello wörld", res.out().trim());
+            assertEquals("warn wörld", res.err().trim());
+
+            Result usage = call(daemon.socket(), request("greet", "--nope", "x"));
+            assertEquals(2, usage.exitCode());
+            assertThat(usage.err()).contains("Unknown option: --nope");
+
+            Result help = call(daemon.socket(), request("--help"));
+            assertEquals(0, help.exitCode());
+            assertThat(help.out()).startsWith("Usage: tool");
+        }
+    }
+
+    @Test
+    void exposesClientWorkingDirectoryAndEnvironment() throws Exception {
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), tmp.resolve("t.sock"))) {
+            assertEquals("/work hi", call(daemon.socket(), request("where")).out().trim());
+        }
+        assertEquals(null, FemtoCliDaemon.currentRequest());
+    }
+
+    @Test
+    void servesConcurrentClients() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), tmp.resolve("c.sock"))) {
+            List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String name = "n" + i;
+                results.add(pool.submit(() -> call(daemon.socket(), request("greet", name))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("hello n" + i, results.get(i).get().out().trim());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void socketIsOnlyAccessibleToOwner() throws Exception {
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), tmp.resolve("p.sock"))) {
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(daemon.socket()));
+            assertEquals("hello x", call(daemon.socket(), request("greet", "x")).out().trim());
+        }
+    }
+
+    @Test
+    void onlyReplacesStaleSockets() throws Exception {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        Path file = tmp.resolve("file.sock");
+        Files.writeString(file, "data");
+        assertThrows(FileAlreadyExistsException.class, () -> FemtoCliDaemon.start(cli, file));
+        assertEquals("data", Files.readString(file));
+
+        Path stale = tmp.resolve("stale.sock");
+        try (ServerSocketChannel old = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            old.bind(UnixDomainSocketAddress.of(stale));
+        }
+        assertTrue(Files.exists(stale));
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(cli, stale)) {
+            assertEquals("hello x", call(daemon.socket(), request("greet", "x")).out().trim());
+            assertThrows(FileAlreadyExistsException.class, () -> FemtoCliDaemon.start(cli, stale));
+            assertEquals("hello y", call(daemon.socket(), request("greet", "y")).out().trim());
+        }
+    }
+
+    @Test
+    void rejectsOversizedRequests() {
+        int length = 16 * 1024 * 1024;
+        // MAGIC, argc = 3, then strings of the maximum length, which add up to more than a request may have
+        InputStream in = new InputStream() {
+            long pos;
+
+            @Override
+            public int read() {
+                long p = pos++;
+                if (p < 8) return (int) (((p < 4 ? Protocol.MAGIC : 3) >>> (8 * (3 - p % 4))) & 0xFF);
+                long inString = (p - 8) % (4 + length);
+                return inString < 4 ? (int) ((length >>> (8 * (3 - inString))) & 0xFF) : 0;
+            }
+        };
+        IOException ex = assertThrows(IOException.class, () -> Protocol.readRequest(new DataInputStream(in)));
+        assertThat(ex.getMessage()).contains("Request larger than");
+
+        byte[] hugeCount = ByteBuffer.allocate(8).putInt(Protocol.MAGIC).putInt(Integer.MAX_VALUE).array();
+        assertThrows(IOException.class,
+                () -> Protocol.readRequest(new DataInputStream(new ByteArrayInputStream(hugeCount))));
+    }
+
+    @Test
+    void boundsConcurrentInvocations() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), tmp.resolve("b.sock"), 2)) {
+            List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String name = "n" + i;
+                results.add(pool.submit(() -> call(daemon.socket(), request("greet", name))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("hello n" + i, results.get(i).get().out().trim());
+            }
+            long handlerThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(t -> t.getName().equals("femtocli-daemon-request")).count();
+            assertThat(handlerThreads).isLessThanOrEqualTo(2);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void disconnectsClientsThatSendNoRequest() throws Exception {
+        try (FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), tmp.resolve("i.sock"), 1,
+                Duration.ofMillis(200));
+             SocketChannel idle = SocketChannel.open(UnixDomainSocketAddress.of(daemon.socket()))) {
+            // the idle client holds the only slot until its deadline passes
+            assertEquals("hello x", call(daemon.socket(), request("greet", "x")).out().trim());
+            assertEquals(-1, idle.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    void closeRemovesSocket() throws Exception {
+        Path socket = tmp.resolve("gone.sock");
+        FemtoCliDaemon daemon = FemtoCliDaemon.start(FemtoCli.builder().build(Tool.class), socket);
+        daemon.close();
+        assertFalse(Files.exists(socket));
+    }
+}
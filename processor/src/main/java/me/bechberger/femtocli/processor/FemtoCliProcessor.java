@@ -0,0 +1,371 @@
+package me.bechberger.femtocli.processor;
+
+import me.bechberger.femtocli.GeneratedAccessor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compile-time companion for femtocli.
+ *
+ * <p>For every class that declares {@code @Option}, {@code @Parameters}, {@code @Mixin} or
+ * {@code Spec} fields (and every {@code @Command} class), this processor
+ * <ul>
+ *   <li>reports fields that femtocli would reject at runtime (final options/parameters,
+ *       static or final mixins) as compile errors, and</li>
+ *   <li>generates a {@link GeneratedAccessor} next to the class that reads and writes the
+ *       non-private fields directly, so that binding needs no reflective field access, and marks it in
+ *       {@code META-INF/femtocli/accessors/<class>}.</li>
+ * </ul>
+ * Commands are still scanned, routed and rendered at runtime; the processor only replaces field access.
+ * For commands with {@code lazySubcommands}, it writes an index of their names and descriptions to
+ * {@code META-INF/femtocli/subcommands/<command class>}, so that help output does not need to load them, and
+ * commands with {@code pluginOf} are listed in {@code META-INF/femtocli/plugins/<parent class>}.
+ *
+ * <p>It also writes GraalVM native-image metadata for the whole command graph, see {@link NativeImageMetadata}.
+ * Options: {@code -Afemtocli.nativeImage=false} disables this, {@code -Afemtocli.nativeImageId=group/artifact}
+ * sets the directory below {@code META-INF/native-image/}.
+ */
+@SupportedAnnotationTypes({
+        FemtoCliProcessor.COMMAND,
+        FemtoCliProcessor.OPTION,
+        FemtoCliProcessor.PARAMETERS,
+        FemtoCliProcessor.MIXIN
+})
+@SupportedOptions({FemtoCliProcessor.NATIVE_IMAGE_OPTION, FemtoCliProcessor.NATIVE_IMAGE_ID_OPTION})
+public final class FemtoCliProcessor extends AbstractProcessor {
+
+    static final String ANNOTATIONS = "me.bechberger.femtocli.annotations.";
+    static final String COMMAND = ANNOTATIONS + "Command";
+    static final String OPTION = ANNOTATIONS + "Option";
+    static final String PARAMETERS = ANNOTATIONS + "Parameters";
+    static final String MIXIN = ANNOTATIONS + "Mixin";
+    static final String SPEC = "me.bechberger.femtocli.Spec";
+    static final String NATIVE_IMAGE_OPTION = "femtocli.nativeImage";
+    static final String NATIVE_IMAGE_ID_OPTION = "femtocli.nativeImageId";
+    static final String SUBCOMMAND_INDEX = "META-INF/femtocli/subcommands/";
+    static final String PLUGIN_INDEX = "META-INF/femtocli/plugins/";
+    static final String ACCESSOR_INDEX = "META-INF/femtocli/accessors/";
+    private static final String INDEX_HEADER = "# Generated by femtocli-processor. Do not edit.\n";
+
+    private NativeImageMetadata metadata;
+    /** Plugin index lines per binary name of the parent command, written when processing is over. */
+    private final Map<String, StringBuilder> plugins = new TreeMap<>();
+    private final List<Element> pluginElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (metadata == null) metadata = new NativeImageMetadata(processingEnv);
+        if (roundEnv.processingOver()) {
+            writePluginIndexes();
+            writeNativeImageMetadata();
+            return false;
+        }
+        Set<TypeElement> holders = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (e.getKind() == ElementKind.FIELD && e.getEnclosingElement() instanceof TypeElement type) {
+                    holders.add(type);
+                } else if (e.getKind().isClass() && e instanceof TypeElement type) {
+                    holders.add(type);
+                    if (annotation.getQualifiedName().contentEquals(COMMAND)) {
+                        metadata.addCommand(type);
+                        writeSubcommandIndex(type);
+                        addPlugin(type);
+                    }
+                }
+            }
+        }
+        for (TypeElement type : holders) {
+            List<VariableElement> fields = validateAndCollect(type);
+            PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+            // the setter casts to the field's type, which must be nameable from the accessor's package
+            fields.removeIf(field -> !isAccessibleFrom(processingEnv.getTypeUtils().erasure(field.asType()), pkg));
+            if (!fields.isEmpty() && isAccessibleFromPackage(type)) {
+                metadata.addAccessor(generateAccessor(type, fields));
+            }
+        }
+        return false;
+    }
+
+    private void writeNativeImageMetadata() {
+        if ("false".equals(processingEnv.getOptions().get(NATIVE_IMAGE_OPTION)) || metadata.isEmpty()) return;
+        String id = processingEnv.getOptions().getOrDefault(NATIVE_IMAGE_ID_OPTION, metadata.defaultId());
+        try {
+            metadata.write(id);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write native-image metadata: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the index of {@code @Command(lazySubcommands = ...)}, so that femtocli can list and route
+     * to them without loading their classes (format: see {@code LazySubcommand} in femtocli).
+     */
+    private void writeSubcommandIndex(TypeElement type) {
+        List<TypeElement> subcommands = lazySubcommands(type);
+        if (subcommands.isEmpty()) return;
+        StringBuilder sb = new StringBuilder(INDEX_HEADER);
+        for (TypeElement sub : subcommands) {
+            AnnotationMirror command = annotation(sub, COMMAND);
+            if (command == null) {
+                error(type, "Lazy subcommand " + sub.getQualifiedName() + " has no @Command annotation");
+                continue;
+            }
+            appendIndexLine(sb, sub, command);
+        }
+        writeResource(SUBCOMMAND_INDEX + processingEnv.getElementUtils().getBinaryName(type), sb.toString(), type);
+    }
+
+    /** Collects {@code @Command(pluginOf = ...)} commands for the plugin index of their parent. */
+    private void addPlugin(TypeElement type) {
+        AnnotationMirror command = annotation(type, COMMAND);
+        if (!(annotationValue(command, "pluginOf") instanceof DeclaredType declared)
+                || !(declared.asElement() instanceof TypeElement parent)) {
+            return;
+        }
+        AnnotationMirror parentCommand = annotation(parent, COMMAND);
+        if (parentCommand == null || !Boolean.TRUE.equals(annotationValue(parentCommand, "plugins"))) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    parent.getQualifiedName() + " does not enable @Command(plugins = true), so plugin "
+                            + type.getQualifiedName() + " will not be offered", type);
+        }
+        String parentName = processingEnv.getElementUtils().getBinaryName(parent).toString();
+        appendIndexLine(plugins.computeIfAbsent(parentName, k -> new StringBuilder(INDEX_HEADER)), type, command);
+        pluginElements.add(type);
+    }
+
+    private void writePluginIndexes() {
+        Element[] originating = pluginElements.toArray(new Element[0]);
+        for (Map.Entry<String, StringBuilder> e : plugins.entrySet()) {
+            writeResource(PLUGIN_INDEX + e.getKey(), e.getValue().toString(), originating);
+        }
+    }
+
+    /** Appends {@code name TAB className TAB hidden TAB description} as read by femtocli's {@code LazySubcommand}. */
+    private void appendIndexLine(StringBuilder sb, TypeElement sub, AnnotationMirror command) {
+        Object name = annotationValue(command, "name");
+        Object hidden = annotationValue(command, "hidden");
+        Object description = annotationValue(command, "description");
+        String firstLine = description instanceof List<?> lines && !lines.isEmpty()
+                ? (String) ((AnnotationValue) lines.get(0)).getValue() : "";
+        sb.append(name).append('\t')
+                .append(processingEnv.getElementUtils().getBinaryName(sub)).append('\t')
+                .append(Boolean.TRUE.equals(hidden)).append('\t')
+                .append(escapeIndex(firstLine)).append('\n');
+    }
+
+    private void writeResource(String path, String content, Element... originating) {
+        try (Writer w = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", path, originating).openWriter()) {
+            w.write(content);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + path + ": " + e.getMessage());
+        }
+    }
+
+    /** The classes of {@code @Command(lazySubcommands = ...)}; reports names that cannot be resolved. */
+    List<TypeElement> lazySubcommands(TypeElement type) {
+        AnnotationMirror command = annotation(type, COMMAND);
+        Object names = command == null ? null : annotationValue(command, "lazySubcommands");
+        if (!(names instanceof List<?> list)) return List.of();
+        List<TypeElement> result = new ArrayList<>();
+        for (Object value : list) {
+            String name = (String) ((AnnotationValue) value).getValue();
+            TypeElement sub = processingEnv.getElementUtils().getTypeElement(name.replace('$', '.'));
+            if (sub == null || !processingEnv.getElementUtils().getBinaryName(sub).contentEquals(name)) {
+                error(type, "Lazy subcommand class " + name + " not found (use the binary name, e.g. a.b.Outer$Inner)");
+                continue;
+            }
+            result.add(sub);
+        }
+        return result;
+    }
+
+    private static String escapeIndex(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    /** Reports invalid fields and returns the fields the generated accessor can handle. */
+    private List<VariableElement> validateAndCollect(TypeElement type) {
+        List<VariableElement> result = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            boolean option = hasAnnotation(field, OPTION);
+            boolean parameters = hasAnnotation(field, PARAMETERS);
+            boolean mixin = hasAnnotation(field, MIXIN);
+            if ((option || parameters) && modifiers.contains(Modifier.FINAL)) {
+                error(field, "@" + (option ? "Option" : "Parameters") + " field must not be final");
+                continue;
+            }
+            if (mixin && modifiers.contains(Modifier.STATIC)) {
+                error(field, "@Mixin field must not be static");
+                continue;
+            }
+            if (mixin && modifiers.contains(Modifier.FINAL)) {
+                error(field, "@Mixin field must not be final");
+                continue;
+            }
+            boolean spec = erasure(field.asType()).equals(SPEC);
+            if (!(option || parameters || mixin || spec)
+                    || modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+            result.add(field);
+        }
+        return result;
+    }
+
+    /** Whether a class in the same package can name {@code type} and its non-private members. */
+    private static boolean isAccessibleFromPackage(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement t; e = e.getEnclosingElement()) {
+            if (t.getModifiers().contains(Modifier.PRIVATE)) return false;
+            if (t.getNestingKind() != NestingKind.TOP_LEVEL && t.getNestingKind() != NestingKind.MEMBER) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether code in {@code pkg} can name the erased {@code type}; fields of other types are left to reflection.
+     */
+    private boolean isAccessibleFrom(TypeMirror type, PackageElement pkg) {
+        if (type instanceof ArrayType array) return isAccessibleFrom(array.getComponentType(), pkg);
+        if (!(type instanceof DeclaredType declared)) return true;
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(declared.asElement()).equals(pkg);
+        for (Element e = declared.asElement(); e instanceof TypeElement t; e = e.getEnclosingElement()) {
+            if (t.getNestingKind() != NestingKind.TOP_LEVEL && t.getNestingKind() != NestingKind.MEMBER) return false;
+            Set<Modifier> modifiers = t.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) return false;
+            if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) return false;
+        }
+        return true;
+    }
+
+    /** Writes the accessor source and returns the accessor's class name. */
+    private String generateAccessor(TypeElement type, List<VariableElement> fields) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        // same encoding as FieldAccess.accessorName
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace("$", "$$") + GeneratedAccessor.SUFFIX;
+        String typeName = type.getQualifiedName().toString();
+
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("/** Generated by femtocli-processor for {@link ").append(typeName).append("}. Do not edit. */\n");
+        sb.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        sb.append("public final class ").append(simpleName)
+                .append(" implements me.bechberger.femtocli.GeneratedAccessor {\n\n");
+        sb.append("    private static final String[] FIELD_NAMES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('"').append(fields.get(i).getSimpleName()).append('"');
+        }
+        sb.append("};\n\n");
+        sb.append("    @Override\n    public String[] fieldNames() {\n        return FIELD_NAMES.clone();\n    }\n\n");
+
+        sb.append("    @Override\n    public Object get(Object target, int index) {\n        switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append("            case ").append(i).append(": return ")
+                    .append(fieldRef(typeName, fields.get(i))).append(";\n");
+        }
+        sb.append("            default: throw new IndexOutOfBoundsException(index);\n        }\n    }\n\n");
+
+        sb.append("    @Override\n    public void set(Object target, int index, Object value) {\n        switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+            sb.append("            case ").append(i).append(": ").append(fieldRef(typeName, field))
+                    .append(" = (").append(castType(field.asType())).append(") value; return;\n");
+        }
+        sb.append("            default: throw new IndexOutOfBoundsException(index);\n        }\n    }\n}\n");
+
+        String qualified = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer w = processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+            w.write(sb.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + qualified + ": " + e.getMessage(), type);
+        }
+        // lets femtocli look for the accessor only where there is one
+        writeResource(ACCESSOR_INDEX + binaryName, INDEX_HEADER + qualified + "\n", type);
+        return qualified;
+    }
+
+    private static String fieldRef(String typeName, VariableElement field) {
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+            return typeName + "." + field.getSimpleName();
+        }
+        return "((" + typeName + ") target)." + field.getSimpleName();
+    }
+
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return erasure(type);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        return annotation(element, annotation) != null;
+    }
+
+    static AnnotationMirror annotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /** The value of an explicitly given annotation attribute, or {@code null}. */
+    static Object annotationValue(AnnotationMirror mirror, String name) {
+        for (var e : mirror.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(name)) return e.getValue().getValue();
+        }
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,258 @@
+package me.bechberger.femtocli.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Collects everything femtocli accesses reflectively for the commands of one compilation and writes it as
+ * GraalVM {@code META-INF/native-image/<id>/reachability-metadata.json}.
+ *
+ * <p>Starting from every {@code @Command} class, this follows subcommands (also ones from the class path),
+ * lazy and default subcommands, mixins and superclasses, and registers
+ * <ul>
+ *   <li>commands and mixins with their constructors, fields and methods
+ *       ({@code @Command} methods and converter/verifier methods without a class part),</li>
+ *   <li>{@code converter}/{@code verifier} classes with their constructors,</li>
+ *   <li>classes referenced by {@code converterMethod}/{@code verifierMethod} ({@code "Class#method"}) with their methods,</li>
+ *   <li>enum option types with their fields and methods (for {@code getDescription()}),</li>
+ *   <li>the generated accessors, which femtocli looks up via {@link Class#forName(String)}, and</li>
+ *   <li>the lazy subcommand and plugin index files as resources.</li>
+ * </ul>
+ */
+final class NativeImageMetadata {
+
+    enum Access {
+        CONSTRUCTORS("allDeclaredConstructors"),
+        FIELDS("allDeclaredFields"),
+        METHODS("allDeclaredMethods");
+
+        final String key;
+
+        Access(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Set<Access> ALL = EnumSet.allOf(Access.class);
+    private static final String TYPE_CONVERTER_NULL = "me.bechberger.femtocli.TypeConverter.NullTypeConverter";
+    private static final String VERIFIER_NULL = "me.bechberger.femtocli.Verifier.NullVerifier";
+
+    private final ProcessingEnvironment env;
+    /** Binary class name to the registered access, sorted for a stable output. */
+    private final Map<String, Set<Access>> types = new TreeMap<>();
+    private final Set<String> visited = new HashSet<>();
+    private String firstPackage;
+    private boolean usesIndexes;
+
+    NativeImageMetadata(ProcessingEnvironment env) {
+        this.env = env;
+    }
+
+    boolean isEmpty() {
+        return types.isEmpty();
+    }
+
+    /** Register a command and everything reachable from it. */
+    void addCommand(TypeElement type) {
+        if (visited.contains(binaryName(type))) return;
+        String pkg = env.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        if (firstPackage == null || pkg.compareTo(firstPackage) < 0) firstPackage = pkg;
+        addHolder(type);
+        AnnotationMirror command = annotation(type, FemtoCliProcessor.COMMAND);
+        if (command == null) return;
+        AnnotationValue subcommands = value(command, "subcommands");
+        if (subcommands != null) {
+            for (Object sub : (List<?>) subcommands.getValue()) {
+                addCommandType(((AnnotationValue) sub).getValue());
+            }
+        }
+        AnnotationValue defaultSubcommand = value(command, "defaultSubcommand");
+        if (defaultSubcommand != null) addCommandType(defaultSubcommand.getValue());
+        if (value(command, "plugins") != null || value(command, "pluginOf") != null) usesIndexes = true;
+        AnnotationValue lazySubcommands = value(command, "lazySubcommands");
+        if (lazySubcommands != null) {
+            usesIndexes = true;
+            for (Object value : (List<?>) lazySubcommands.getValue()) {
+                String name = (String) ((AnnotationValue) value).getValue();
+                TypeElement sub = env.getElementUtils().getTypeElement(name.replace('$', '.'));
+                if (sub != null) addCommand(sub);
+            }
+        }
+    }
+
+    void addAccessor(String binaryName) {
+        add(binaryName, EnumSet.of(Access.CONSTRUCTORS));
+    }
+
+    private void addCommandType(Object value) {
+        if (value instanceof DeclaredType declared && declared.asElement() instanceof TypeElement sub) {
+            addCommand(sub);
+        }
+    }
+
+    /** Register a command or mixin class with its superclasses, and the types its fields refer to. */
+    private void addHolder(TypeElement type) {
+        if (!visited.add(binaryName(type))) return;
+        for (TypeElement t = type; t != null; t = superclass(t)) {
+            add(binaryName(t), ALL);
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (annotation(field, FemtoCliProcessor.MIXIN) != null) {
+                    if (field.asType() instanceof DeclaredType declared && declared.asElement() instanceof TypeElement mixin) {
+                        addHolder(mixin);
+                    }
+                }
+                AnnotationMirror option = annotation(field, FemtoCliProcessor.OPTION);
+                if (option == null) option = annotation(field, FemtoCliProcessor.PARAMETERS);
+                if (option != null) {
+                    addOptionTypes(t, field, option);
+                }
+            }
+        }
+    }
+
+    private void addOptionTypes(TypeElement holder, VariableElement field, AnnotationMirror option) {
+        for (String attribute : List.of("converter", "verifier")) {
+            AnnotationValue value = value(option, attribute);
+            if (value != null && value.getValue() instanceof DeclaredType declared
+                    && declared.asElement() instanceof TypeElement cls) {
+                String name = cls.getQualifiedName().toString();
+                if (!name.equals(TYPE_CONVERTER_NULL) && !name.equals(VERIFIER_NULL)) {
+                    add(binaryName(cls), EnumSet.of(Access.CONSTRUCTORS));
+                }
+            }
+        }
+        for (String attribute : List.of("converterMethod", "verifierMethod")) {
+            AnnotationValue value = value(option, attribute);
+            if (value == null) continue;
+            String spec = (String) value.getValue();
+            int hash = spec.indexOf('#');
+            if (hash <= 0) continue; // method of the command or mixin itself
+            TypeElement owner = resolveClass(spec.substring(0, hash), holder);
+            if (owner == null) {
+                env.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Cannot resolve class of '" + spec + "' for native-image metadata", field);
+                continue;
+            }
+            for (TypeElement t = owner; t != null; t = superclass(t)) {
+                add(binaryName(t), EnumSet.of(Access.METHODS));
+            }
+        }
+        addEnums(field.asType());
+    }
+
+    /** Mirrors {@code FemtoCli.resolveClass}: nested classes of the holder and its enclosing classes, its package, then a qualified name. */
+    private TypeElement resolveClass(String name, TypeElement holder) {
+        var elements = env.getElementUtils();
+        for (Element e = holder; e instanceof TypeElement t; e = e.getEnclosingElement()) {
+            TypeElement nested = elements.getTypeElement(t.getQualifiedName() + "." + name);
+            if (nested != null) return nested;
+        }
+        PackageElement pkg = elements.getPackageOf(holder);
+        if (!pkg.isUnnamed()) {
+            TypeElement sibling = elements.getTypeElement(pkg.getQualifiedName() + "." + name);
+            if (sibling != null) return sibling;
+        }
+        return elements.getTypeElement(name.replace('$', '.'));
+    }
+
+    private void addEnums(TypeMirror type) {
+        if (type instanceof ArrayType array) {
+            addEnums(array.getComponentType());
+        } else if (type instanceof DeclaredType declared) {
+            if (declared.asElement().getKind() == ElementKind.ENUM) {
+                add(binaryName((TypeElement) declared.asElement()), EnumSet.of(Access.FIELDS, Access.METHODS));
+            }
+            for (TypeMirror argument : declared.getTypeArguments()) {
+                addEnums(argument);
+            }
+        }
+    }
+
+    private void add(String binaryName, Set<Access> access) {
+        types.computeIfAbsent(binaryName, k -> EnumSet.noneOf(Access.class)).addAll(access);
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private String binaryName(TypeElement type) {
+        return env.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /** An explicitly given annotation attribute, or {@code null}. */
+    private static AnnotationValue value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(name)) return e.getValue();
+        }
+        return null;
+    }
+
+    /** The id is {@code <groupId>/<artifactId>} by convention; defaults to {@code femtocli/<package of the commands>}. */
+    String defaultId() {
+        return "femtocli/" + (firstPackage == null || firstPackage.isEmpty() ? "default" : firstPackage);
+    }
+
+    String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"reflection\": [");
+        boolean first = true;
+        for (Map.Entry<String, Set<Access>> e : types.entrySet()) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\n      \"type\": \"").append(e.getKey()).append('"');
+            for (Access access : e.getValue()) {
+                sb.append(",\n      \"").append(access.key).append("\": true");
+            }
+            sb.append("\n    }");
+        }
+        sb.append("\n  ]");
+        if (usesIndexes) {
+            sb.append(",\n  \"resources\": [\n    {\n      \"glob\": \"")
+                    .append("META-INF/femtocli/**\"\n    }\n  ]");
+        }
+        return sb.append("\n}\n").toString();
+    }
+
+    void write(String id) throws IOException {
+        FileObject file = env.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/native-image/" + id + "/reachability-metadata.json");
+        try (Writer w = file.openWriter()) {
+            w.write(toJson());
+        }
+    }
+}
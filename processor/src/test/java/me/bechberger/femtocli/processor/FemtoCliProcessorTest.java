@@ -0,0 +1,436 @@
+package me.bechberger.femtocli.processor;
+
+import me.bechberger.femtocli.FemtoCli;
+import me.bechberger.femtocli.GeneratedAccessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FemtoCliProcessorTest {
+
+    @TempDir
+    Path tmp;
+
+    private static final String TOOL = """
+            package demo;
+
+            import me.bechberger.femtocli.Spec;
+            import me.bechberger.femtocli.annotations.Command;
+            import me.bechberger.femtocli.annotations.Mixin;
+            import me.bechberger.femtocli.annotations.Option;
+            import me.bechberger.femtocli.annotations.Parameters;
+
+            import java.util.List;
+
+            @Command(name = "tool")
+            public class Tool implements Runnable {
+                public static class Common {
+                    @Option(names = "--verbose")
+                    boolean verbose;
+                }
+
+                @Mixin
+                Common common;
+
+                @Option(names = "--count", defaultValue = "1")
+                int count;
+
+                @Option(names = "--secret")
+                private String secret;
+
+                @Parameters(arity = "0..*")
+                List<String> files;
+
+                Spec spec;
+
+                public void run() {
+                    spec.out().println(count + " " + common.verbose + " " + secret + " " + files);
+                }
+            }
+            """;
+
+    private record Compilation(boolean success, String diagnostics, Path classes, Path sources) {}
+
+    private Compilation compile(String className, String source) throws IOException {
+        Path src = tmp.resolve("src");
+        Path classes = tmp.resolve("classes");
+        Path generated = tmp.resolve("generated");
+        Files.createDirectories(classes);
+        Files.createDirectories(generated);
+        Path file = src.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fm = compiler.getStandardFileManager(diagnostics, null, null)) {
+            var task = compiler.getTask(null, fm, diagnostics,
+                    List.of("-classpath", System.getProperty("java.class.path"),
+                            "-d", classes.toString(), "-s", generated.toString()),
+                    null, fm.getJavaFileObjects(file));
+            task.setProcessors(List.of(new FemtoCliProcessor()));
+            boolean ok = task.call();
+            StringBuilder sb = new StringBuilder();
+            diagnostics.getDiagnostics().forEach(d -> sb.append(d.getMessage(null)).append('\n'));
+            return new Compilation(ok, sb.toString(), classes, generated);
+        }
+    }
+
+    @Test
+    void generatesAccessorForNonPrivateFields() throws Exception {
+        Compilation c = compile("demo.Tool", TOOL);
+        assertTrue(c.success(), c.diagnostics());
+
+        assertTrue(Files.exists(c.sources().resolve("demo/Tool_FemtoCliAccessor.java")));
+        assertTrue(Files.exists(c.sources().resolve("demo/Tool$$Common_FemtoCliAccessor.java")));
+        assertThat(Files.readString(c.classes().resolve("META-INF/femtocli/accessors/demo.Tool$Common")))
+                .contains("demo.Tool$$Common_FemtoCliAccessor");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{c.classes().toUri().toURL()},
+                getClass().getClassLoader())) {
+            GeneratedAccessor accessor = (GeneratedAccessor) loader.loadClass("demo.Tool_FemtoCliAccessor")
+                    .getDeclaredConstructor().newInstance();
+            assertArrayEquals(new String[]{"common", "count", "files", "spec"}, accessor.fieldNames());
+
+            Object tool = loader.loadClass("demo.Tool").getDeclaredConstructor().newInstance();
+            accessor.set(tool, 1, 42);
+            assertEquals(42, accessor.get(tool, 1));
+        }
+    }
+
+    @Test
+    void generatedAccessorIsUsedTransparently() throws Exception {
+        Compilation c = compile("demo.Tool", TOOL);
+        assertTrue(c.success(), c.diagnostics());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{c.classes().toUri().toURL()},
+                getClass().getClassLoader())) {
+            Object tool = loader.loadClass("demo.Tool").getDeclaredConstructor().newInstance();
+            var res = FemtoCli.runCaptured(tool, "--count", "3", "--verbose", "--secret", "s", "a", "b");
+
+            assertEquals(0, res.exitCode(), res.err());
+            assertEquals("3 true s [a, b]", res.out().strip());
+            Field count = tool.getClass().getDeclaredField("count");
+            count.setAccessible(true);
+            assertEquals(3, count.get(tool));
+        }
+    }
+
+    @Test
+    void reportsInvalidFieldsAtCompileTime() throws Exception {
+        Compilation c = compile("demo.Bad", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Mixin;
+                import me.bechberger.femtocli.annotations.Option;
+
+                public class Bad {
+                    @Option(names = "--x")
+                    final int x = 1;
+
+                    @Mixin
+                    static Object mixin;
+                }
+                """);
+
+        assertFalse(c.success());
+        assertThat(c.diagnostics())
+                .contains("@Option field must not be final")
+                .contains("@Mixin field must not be static");
+    }
+
+    @Test
+    void writesNativeImageMetadataForTheCommandGraph() throws Exception {
+        Compilation c = compile("demo.Cli", """
+                package demo;
+
+                import me.bechberger.femtocli.TypeConverter;
+                import me.bechberger.femtocli.annotations.Command;
+                import me.bechberger.femtocli.annotations.Mixin;
+                import me.bechberger.femtocli.annotations.Option;
+
+                @Command(name = "cli", subcommands = {Cli.Run.class})
+                public class Cli implements Runnable {
+                    enum Mode { FAST, SLOW }
+
+                    static class Base {
+                        @Option(names = "--mode")
+                        Mode mode;
+                    }
+
+                    static class Common {
+                        @Option(names = "--level", converterMethod = "Parsers#level")
+                        int level;
+                    }
+
+                    static class Parsers {
+                        static int level(String s) { return s.length(); }
+                    }
+
+                    public static class Upper implements TypeConverter<String> {
+                        public String convert(String s) { return s.toUpperCase(); }
+                    }
+
+                    @Command(name = "run")
+                    static class Run extends Base implements Runnable {
+                        @Mixin
+                        Common common;
+
+                        @Option(names = "--name", converter = Upper.class)
+                        String name;
+
+                        public void run() {}
+                    }
+
+                    public void run() {}
+                }
+                """);
+        assertTrue(c.success(), c.diagnostics());
+
+        Path json = c.classes().resolve("META-INF/native-image/femtocli/demo/reachability-metadata.json");
+        assertTrue(Files.exists(json));
+        String content = Files.readString(json);
+        assertThat(content)
+                .contains("""
+                        "type": "demo.Cli",
+                              "allDeclaredConstructors": true,
+                              "allDeclaredFields": true,
+                              "allDeclaredMethods": true""")
+                .contains("\"type\": \"demo.Cli$Run\"")
+                .contains("\"type\": \"demo.Cli$Base\"")
+                .contains("\"type\": \"demo.Cli$Common\"")
+                .contains("""
+                        "type": "demo.Cli$Parsers",
+                              "allDeclaredMethods": true""")
+                .contains("""
+                        "type": "demo.Cli$Upper",
+                              "allDeclaredConstructors": true
+                            }""")
+                .contains("""
+                        "type": "demo.Cli$Mode",
+                              "allDeclaredFields": true,
+                              "allDeclaredMethods": true""")
+                .contains("\"type\": \"demo.Cli$$Run_FemtoCliAccessor\"")
+                .doesNotContain("NullTypeConverter");
+    }
+
+    @Test
+    void writesIndexOfLazySubcommands() throws Exception {
+        Compilation c = compile("demo.Lazy", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Command;
+
+                @Command(name = "lazy", lazySubcommands = {"demo.Lazy$Deploy", "demo.Lazy$Internal"})
+                public class Lazy implements Runnable {
+                    @Command(name = "deploy", description = {"Deploy\tit", "more"})
+                    public static class Deploy implements Runnable {
+                        public void run() {}
+                    }
+
+                    @Command(name = "internal", hidden = true)
+                    public static class Internal implements Runnable {
+                        public void run() {}
+                    }
+
+                    public void run() {}
+                }
+                """);
+        assertTrue(c.success(), c.diagnostics());
+
+        Path index = c.classes().resolve("META-INF/femtocli/subcommands/demo.Lazy");
+        assertThat(Files.readAllLines(index)).containsExactly(
+                "# Generated by femtocli-processor. Do not edit.",
+                "deploy\tdemo.Lazy$Deploy\tfalse\tDeploy\\tit",
+                "internal\tdemo.Lazy$Internal\ttrue\t");
+        assertThat(Files.readString(c.classes().resolve("META-INF/native-image/femtocli/demo/reachability-metadata.json")))
+                .contains("\"type\": \"demo.Lazy$Deploy\"")
+                .contains("\"glob\": \"META-INF/femtocli/**\"");
+    }
+
+    @Test
+    void writesPluginIndexOfTheParent() throws Exception {
+        Compilation c = compile("demo.Plugins", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Command;
+
+                public class Plugins {
+                    @Command(name = "host", plugins = true)
+                    public static class Host implements Runnable {
+                        public void run() {}
+                    }
+
+                    @Command(name = "other")
+                    public static class Other implements Runnable {
+                        public void run() {}
+                    }
+
+                    @Command(name = "export", description = "Export data", pluginOf = Host.class)
+                    public static class Export implements Runnable {
+                        public void run() {}
+                    }
+
+                    @Command(name = "import", pluginOf = Host.class)
+                    public static class Import implements Runnable {
+                        public void run() {}
+                    }
+
+                    @Command(name = "orphan", pluginOf = Other.class)
+                    public static class Orphan implements Runnable {
+                        public void run() {}
+                    }
+                }
+                """);
+        assertTrue(c.success(), c.diagnostics());
+        assertThat(c.diagnostics()).contains("demo.Plugins.Other does not enable @Command(plugins = true)");
+
+        assertThat(Files.readAllLines(c.classes().resolve("META-INF/femtocli/plugins/demo.Plugins$Host")))
+                .containsExactly(
+                        "# Generated by femtocli-processor. Do not edit.",
+                        "export\tdemo.Plugins$Export\tfalse\tExport data",
+                        "import\tdemo.Plugins$Import\tfalse\t");
+    }
+
+    @Test
+    void reportsUnknownLazySubcommands() throws Exception {
+        Compilation c = compile("demo.Lazy", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Command;
+
+                @Command(name = "lazy", lazySubcommands = {"demo.Lazy.Deploy", "demo.Missing"})
+                public class Lazy implements Runnable {
+                    @Command(name = "deploy")
+                    public static class Deploy implements Runnable {
+                        public void run() {}
+                    }
+
+                    public void run() {}
+                }
+                """);
+        assertFalse(c.success());
+        assertThat(c.diagnostics())
+                .contains("Lazy subcommand class demo.Lazy.Deploy not found")
+                .contains("Lazy subcommand class demo.Missing not found");
+    }
+
+    @Test
+    void skipsClassesThatCannotBeAccessedFromThePackage() throws Exception {
+        Compilation c = compile("demo.Outer", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Option;
+
+                public class Outer {
+                    private static class Hidden {
+                        @Option(names = "--x")
+                        int x;
+                    }
+                }
+                """);
+
+        assertTrue(c.success(), c.diagnostics());
+        assertFalse(Files.exists(c.sources().resolve("demo/Outer$$Hidden_FemtoCliAccessor.java")));
+    }
+
+    @Test
+    void leavesFieldsOfInaccessibleTypesToReflection() throws Exception {
+        Compilation c = compile("demo.Modes", """
+                package demo;
+
+                import me.bechberger.femtocli.Spec;
+                import me.bechberger.femtocli.annotations.Command;
+                import me.bechberger.femtocli.annotations.Option;
+
+                @Command(name = "modes")
+                public class Modes implements Runnable {
+                    private enum Mode { FAST, SLOW }
+
+                    private record Range(int from) {}
+
+                    @Option(names = "--mode", defaultValue = "FAST")
+                    Mode mode;
+
+                    @Option(names = "--modes", split = ",")
+                    Mode[] modes;
+
+                    @Option(names = "--range", converterMethod = "parseRange")
+                    Range range;
+
+                    @Option(names = "--count")
+                    int count;
+
+                    Spec spec;
+
+                    Range parseRange(String s) {
+                        return new Range(Integer.parseInt(s));
+                    }
+
+                    public void run() {
+                        spec.out().println(mode + " " + modes.length + " " + range.from() + " " + count);
+                    }
+                }
+                """);
+
+        assertTrue(c.success(), c.diagnostics());
+        String accessor = Files.readString(c.sources().resolve("demo/Modes_FemtoCliAccessor.java"));
+        assertThat(accessor).doesNotContain("Mode)").doesNotContain("Range)");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{c.classes().toUri().toURL()},
+                getClass().getClassLoader())) {
+            GeneratedAccessor generated = (GeneratedAccessor) loader.loadClass("demo.Modes_FemtoCliAccessor")
+                    .getDeclaredConstructor().newInstance();
+            assertArrayEquals(new String[]{"count", "spec"}, generated.fieldNames());
+
+            Object modes = loader.loadClass("demo.Modes").getDeclaredConstructor().newInstance();
+            var res = FemtoCli.runCaptured(modes, "--mode", "slow", "--modes", "fast,slow", "--range", "7",
+                    "--count", "2");
+            assertEquals(0, res.exitCode(), res.err());
+            assertEquals("SLOW 2 7 2", res.out().strip());
+        }
+    }
+
+    @Test
+    void nestedAndUnderscoreNamesGetDistinctAccessors() throws Exception {
+        Compilation c = compile("demo.A", """
+                package demo;
+
+                import me.bechberger.femtocli.annotations.Option;
+
+                public class A {
+                    public static class B {
+                        @Option(names = "--nested")
+                        int nested;
+                    }
+                }
+
+                class A_B {
+                    @Option(names = "--top")
+                    int top;
+                }
+                """);
+
+        assertTrue(c.success(), c.diagnostics());
+        assertTrue(Files.exists(c.sources().resolve("demo/A$$B_FemtoCliAccessor.java")));
+        assertTrue(Files.exists(c.sources().resolve("demo/A_B_FemtoCliAccessor.java")));
+    }
+}
@@ -38,6 +38,12 @@ class VersionBumper:
 
         # examples module (kept in sync with root version)
         self.examples_pom_xml = project_root / "examples" / "pom.xml"
+        # optional annotation processor module (kept in sync with root version)
+        self.processor_pom_xml = project_root / "processor" / "pom.xml"
+        # optional daemon module (kept in sync with root version)
+        self.daemon_pom_xml = project_root / "daemon" / "pom.xml"
+        # JMH benchmarks module (not published, kept in sync with root version)
+        self.benchmarks_pom_xml = project_root / "benchmarks" / "pom.xml"
 
     def get_current_version(self) -> str:
         """Extract current version from pom.xml"""
@@ -335,6 +341,48 @@ class VersionBumper:
         self.examples_pom_xml.write_text(content)
         print(f"✓ Updated examples/pom.xml: {old_version} -> {new_version}")
 
+    def update_processor_pom_xml(self, old_version: str, new_version: str):
+        """Update version in processor/pom.xml (module version + dependency version)."""
+        if not self.processor_pom_xml.exists():
+            print(f"⚠ processor/pom.xml not found at {self.processor_pom_xml}, skipping processor update")
+            return
+
+        content = self.processor_pom_xml.read_text()
+        content = content.replace(
+            f'<version>{old_version}</version>',
+            f'<version>{new_version}</version>'
+        )
+        self.processor_pom_xml.write_text(content)
+        print(f"✓ Updated processor/pom.xml: {old_version} -> {new_version}")
+
+    def update_daemon_pom_xml(self, old_version: str, new_version: str):
+        """Update version in daemon/pom.xml (module version + dependency version)."""
+        if not self.daemon_pom_xml.exists():
+            print(f"⚠ daemon/pom.xml not found at {self.daemon_pom_xml}, skipping daemon update")
+            return
+
+        content = self.daemon_pom_xml.read_text()
+        content = content.replace(
+            f'<version>{old_version}</version>',
+            f'<version>{new_version}</version>'
+        )
+        self.daemon_pom_xml.write_text(content)
+        print(f"✓ Updated daemon/pom.xml: {old_version} -> {new_version}")
+
+    def update_benchmarks_pom_xml(self, old_version: str, new_version: str):
+        """Update version in benchmarks/pom.xml (module version + dependency version)."""
+        if not self.benchmarks_pom_xml.exists():
+            print(f"⚠ benchmarks/pom.xml not found at {self.benchmarks_pom_xml}, skipping benchmarks update")
+            return
+
+        content = self.benchmarks_pom_xml.read_text()
+        content = content.replace(
+            f'<version>{old_version}</version>',
+            f'<version>{new_version}</version>'
+        )
+        self.benchmarks_pom_xml.write_text(content)
+        print(f"✓ Updated benchmarks/pom.xml: {old_version} -> {new_version}")
+
     def show_version_diff(self, old_version: str, new_version: str):
         """Show what would change in version files"""
         print("\n📝 File changes preview:")
@@ -589,6 +637,9 @@ Download `femtocli.jar` from the assets below.
             (self.readme, "README.md"),
             (self.changelog, "CHANGELOG.md"),
             (self.examples_pom_xml, "examples-pom.xml"),
+            (self.processor_pom_xml, "processor-pom.xml"),
+            (self.daemon_pom_xml, "daemon-pom.xml"),
+            (self.benchmarks_pom_xml, "benchmarks-pom.xml"),
         ]
 
         for file, backup_name in files_to_backup:
@@ -613,6 +664,9 @@ Download `femtocli.jar` from the assets below.
             (self.backup_dir / "README.md", self.readme),
             (self.backup_dir / "CHANGELOG.md", self.changelog),
             (self.backup_dir / "examples-pom.xml", self.examples_pom_xml),
+            (self.backup_dir / "processor-pom.xml", self.processor_pom_xml),
+            (self.backup_dir / "daemon-pom.xml", self.daemon_pom_xml),
+            (self.backup_dir / "benchmarks-pom.xml", self.benchmarks_pom_xml),
         ]
 
         for backup_file, original_file in files_to_restore:
@@ -1181,6 +1235,9 @@ Examples:
         bumper.update_pom_xml(current_version, new_version)
         bumper.update_readme(current_version, new_version)
         bumper.update_examples_pom_xml(current_version, new_version)
+        bumper.update_processor_pom_xml(current_version, new_version)
+        bumper.update_daemon_pom_xml(current_version, new_version)
+        bumper.update_benchmarks_pom_xml(current_version, new_version)
         bumper.update_changelog(new_version)
 
         # Run tests
@@ -22,86 +22,108 @@ final class AgentArgs {
 
     private AgentArgs() {}
 
-    static String[] toArgv(String agentArgs) {
+    /**
+     * Splits agent args in a single pass. Tokens without quotes or escapes are copied from the input
+     * directly; only the others go through a buffer. Quoted and escaped characters are never trimmed,
+     * which is tracked with the buffer length up to the last character that must be kept.
+     */
+    static String[] toArgv(CharSequence agentArgs) {
         if (agentArgs == null) {
             throw new IllegalArgumentException("agentArgs must not be null");
         }
-        if (agentArgs.isBlank()) {
+        int length = agentArgs.length();
+        int first = 0;
+        while (first < length && Character.isWhitespace(agentArgs.charAt(first))) first++;
+        if (first == length) {
             return new String[0];
         }
 
         List<String> out = new ArrayList<>();
         StringBuilder cur = new StringBuilder();
-        boolean escaping = false;
+        int tokenStart = 0;
+        // true once the current token contains a quote or escape and is collected in cur
+        boolean buffered = false;
+        // length of cur up to the last quoted, escaped or non-whitespace character
+        int keep = 0;
         boolean inSingleQuotes = false;
-        // Track character positions that are "protected" (from quotes or escapes)
-        // so that trimming only affects unprotected leading/trailing whitespace.
-        List<Boolean> protectedChars = new ArrayList<>();
 
-        for (int i = 0; i < agentArgs.length(); i++) {
+        for (int i = 0; i < length; i++) {
             char c = agentArgs.charAt(i);
 
-            if (escaping) {
+            if (c == '\\' || c == '\'') {
+                if (!buffered) {
+                    // switch to the buffer, copying the plain prefix without leading whitespace
+                    buffered = true;
+                    cur.setLength(0);
+                    int from = skipWhitespace(agentArgs, tokenStart, i);
+                    cur.append(agentArgs, from, i);
+                    keep = trimmedEnd(agentArgs, from, i) - from;
+                }
+                if (c == '\'') {
+                    inSingleQuotes = !inSingleQuotes;
+                    continue;
+                }
+                if (++i == length) {
+                    throw new IllegalArgumentException("Dangling escape at end of agent args");
+                }
+                c = agentArgs.charAt(i);
                 // Only a small escape set is supported.
-                if (c == '\\' || c == ',' || c == '=') {
-                    cur.append(c);
-                    protectedChars.add(true);
-                } else {
+                if (c != '\\' && c != ',' && c != '=') {
                     throw new IllegalArgumentException("Invalid escape sequence: \\" + c + " at index " + i);
                 }
-                escaping = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                escaping = true;
-                continue;
-            }
-
-            if (c == '\'') {
-                inSingleQuotes = !inSingleQuotes;
+                cur.append(c);
+                keep = cur.length();
                 continue;
             }
 
             if (!inSingleQuotes && c == ',') {
-                addToken(out, cur, protectedChars);
-                cur.setLength(0);
-                protectedChars.clear();
+                addToken(out, agentArgs, tokenStart, i, buffered ? cur : null, keep);
+                tokenStart = i + 1;
+                buffered = false;
                 continue;
             }
 
-            cur.append(c);
-            protectedChars.add(inSingleQuotes);
+            if (buffered) {
+                if (inSingleQuotes || !Character.isWhitespace(c)) {
+                    cur.append(c);
+                    keep = cur.length();
+                } else if (cur.length() > 0) {
+                    cur.append(c);
+                }
+            }
         }
 
-        if (escaping) {
-            throw new IllegalArgumentException("Dangling escape at end of agent args");
-        }
         if (inSingleQuotes) {
             throw new IllegalArgumentException("Unterminated single quote in agent args");
         }
-        addToken(out, cur, protectedChars);
+        addToken(out, agentArgs, tokenStart, length, buffered ? cur : null, keep);
 
         return out.toArray(String[]::new);
     }
 
-    private static void addToken(List<String> out, StringBuilder cur, List<Boolean> protectedChars) {
-        String raw = cur.toString();
-        // Trim only unprotected leading/trailing whitespace
-        int start = 0;
-        while (start < raw.length() && Character.isWhitespace(raw.charAt(start))
-                && !protectedChars.get(start)) {
-            start++;
+    /** Adds the token {@code cur[0, keep)} or, if {@code cur} is null, the trimmed input range. */
+    private static void addToken(List<String> out, CharSequence agentArgs, int start, int end, StringBuilder cur, int keep) {
+        String token;
+        if (cur != null) {
+            cur.setLength(keep);
+            token = cur.toString();
+        } else {
+            start = skipWhitespace(agentArgs, start, end);
+            token = agentArgs.subSequence(start, trimmedEnd(agentArgs, start, end)).toString();
         }
-        int end = raw.length();
-        while (end > start && Character.isWhitespace(raw.charAt(end - 1))
-                && !protectedChars.get(end - 1)) {
-            end--;
-        }
-        String token = raw.substring(start, end);
         if (token.isEmpty()) {
             throw new IllegalArgumentException("Empty token in agent args (did you use ',,' or a trailing comma?)");
         }
         out.add(token);
     }
-}
\ No newline at end of file
+
+    private static int skipWhitespace(CharSequence s, int start, int end) {
+        while (start < end && Character.isWhitespace(s.charAt(start))) start++;
+        return start;
+    }
+
+    private static int trimmedEnd(CharSequence s, int start, int end) {
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) end--;
+        return end;
+    }
+}
@@ -0,0 +1,184 @@
+package me.bechberger.femtocli;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Expands {@code @file} arguments for {@link CommandConfig#expandArgFiles}.
+ *
+ * <p>An argument {@code @path} naming an existing file is replaced by the arguments in that file, which may
+ * again contain {@code @file} arguments; {@code @-} is replaced by the arguments read from standard input.
+ * Other arguments, {@code @@...} (passed on as {@code @...}) and all arguments after {@code --} are kept as
+ * they are. Files are read as UTF-8 through a fixed size buffer and split by an {@link ArgTokenizer} on demand,
+ * one argument per {@link #next()}, so large argument files are never held in memory as a whole.
+ */
+final class ArgFiles implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Name of the argument file that stands for standard input. */
+    static final String STDIN = "-";
+
+    private final Object cmdForErrors;
+    private final String[] args;
+    private int argIndex;
+    /** The files currently being read, innermost first. */
+    private final ArrayDeque<Source> open = new ArrayDeque<>();
+    /** Real paths of the files currently being read, to detect cycles. */
+    private final Set<Path> reading = new HashSet<>();
+    private boolean endOfOptions;
+    private boolean stdinRead;
+
+    ArgFiles(Object cmdForErrors, String[] args) {
+        this.cmdForErrors = cmdForErrors;
+        this.args = args;
+    }
+
+    /** The next argument, with {@code @file} arguments replaced, or null after the last one. */
+    String next() throws UsageEx {
+        while (true) {
+            String arg;
+            Source source = open.peekFirst();
+            if (source != null) {
+                arg = source.nextToken();
+                if (arg == null) {
+                    closeInnermost();
+                    continue;
+                }
+            } else if (argIndex < args.length) {
+                arg = args[argIndex++];
+            } else {
+                return null;
+            }
+            if (!endOfOptions && arg.length() > 1 && arg.charAt(0) == '@') {
+                if (arg.charAt(1) == '@') {
+                    return arg.substring(1);
+                }
+                if (openFile(arg.substring(1))) {
+                    continue;
+                }
+            }
+            if (arg.equals("--")) endOfOptions = true;
+            return arg;
+        }
+    }
+
+    /** Closes the files that are still open, e.g. when the command did not consume all of its arguments. */
+    @Override
+    public void close() {
+        while (!open.isEmpty()) {
+            closeInnermost();
+        }
+        argIndex = args.length;
+    }
+
+    /** Starts reading the named file; false if there is none, in which case the argument is taken literally. */
+    private boolean openFile(String name) throws UsageEx {
+        if (name.equals(STDIN)) {
+            if (stdinRead) {
+                throw new UsageEx(cmdForErrors, "Standard input can only be read once as an argument file");
+            }
+            stdinRead = true;
+            // not closed: standard input is not ours to close
+            open.push(new Source("standard input", null, new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            return true;
+        }
+        Path file = existingFile(name);
+        if (file == null) return false;
+        Path realPath;
+        try {
+            realPath = file.toRealPath();
+        } catch (IOException e) {
+            throw new UsageEx(cmdForErrors, "Cannot read argument file " + file + ": " + e.getMessage());
+        }
+        if (!reading.add(realPath)) {
+            throw new UsageEx(cmdForErrors, "Argument file " + file + " includes itself");
+        }
+        try {
+            Reader reader = Channels.newReader(Files.newByteChannel(file), StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE);
+            open.push(new Source(file.toString(), realPath, reader));
+        } catch (IOException e) {
+            reading.remove(realPath);
+            throw new UsageEx(cmdForErrors, "Cannot read argument file " + file + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /** The file, or null if there is none. */
+    private static Path existingFile(String name) {
+        try {
+            Path path = Path.of(name);
+            return Files.exists(path) && !Files.isDirectory(path) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private void closeInnermost() {
+        Source source = open.pop();
+        if (source.realPath != null) {
+            reading.remove(source.realPath);
+            try {
+                source.reader.close();
+            } catch (IOException ignored) {
+                // nothing was written, so there is nothing to lose
+            }
+        }
+    }
+
+    /** An argument file being read, with the state of its tokenizer. */
+    private final class Source {
+        final String name;
+        /** Null for standard input. */
+        final Path realPath;
+        final Reader reader;
+        final char[] buffer = new char[BUFFER_SIZE];
+        final ArgTokenizer tokenizer = new ArgTokenizer();
+        int pos;
+        int len;
+        boolean eof;
+
+        Source(String name, Path realPath, Reader reader) {
+            this.name = name;
+            this.realPath = realPath;
+            this.reader = reader;
+        }
+
+        /** The next argument in this file, or null at its end. */
+        String nextToken() throws UsageEx {
+            while (true) {
+                if (pos == len) {
+                    if (eof || !fill()) {
+                        eof = true;
+                        if (tokenizer.inQuotes()) {
+                            throw new UsageEx(cmdForErrors, "Unterminated quote in argument file " + name);
+                        }
+                        return tokenizer.end();
+                    }
+                }
+                String arg = tokenizer.accept(buffer[pos++]);
+                if (arg != null) return arg;
+            }
+        }
+
+        private boolean fill() throws UsageEx {
+            try {
+                int n = reader.read(buffer);
+                pos = 0;
+                len = Math.max(n, 0);
+                return n > 0;
+            } catch (IOException e) {
+                throw new UsageEx(cmdForErrors, "Cannot read argument file " + name + ": " + e.getMessage());
+            }
+        }
+    }
+}
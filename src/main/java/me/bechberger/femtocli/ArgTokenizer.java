@@ -0,0 +1,78 @@
+package me.bechberger.femtocli;
+
+/**
+ * Splits text into arguments, one character at a time, for argument files ({@link ArgFiles}) and the
+ * command lines of a batch ({@link Batch}), so that both follow the same rules:
+ * <ul>
+ *   <li>whitespace (including newlines) separates arguments,</li>
+ *   <li>{@code '...'} and {@code "..."} quote, and within quotes a backslash escapes the next character;
+ *       outside of quotes a backslash is an ordinary character (so {@code C:\dir} needs no quotes),</li>
+ *   <li>lines whose first non-whitespace character is {@code #} are comments.</li>
+ * </ul>
+ */
+final class ArgTokenizer {
+
+    private final StringBuilder token = new StringBuilder();
+    private boolean inToken;
+    private boolean lineStart = true;
+    private boolean comment;
+    private boolean escape;
+    private char quote;
+
+    /** Processes the next character and returns the argument it ends, or null. */
+    String accept(char c) {
+        if (comment) {
+            if (c == '\n') {
+                comment = false;
+                lineStart = true;
+            }
+        } else if (escape) {
+            token.append(c);
+            escape = false;
+        } else if (quote != 0) {
+            if (c == '\\') {
+                escape = true;
+            } else if (c == quote) {
+                quote = 0;
+            } else {
+                token.append(c);
+            }
+        } else if (Character.isWhitespace(c)) {
+            if (c == '\n') lineStart = true;
+            if (inToken) return take();
+        } else if (c == '#' && lineStart) {
+            comment = true;
+        } else {
+            if (c == '\'' || c == '"') {
+                quote = c;
+            } else {
+                token.append(c);
+            }
+            inToken = true;
+            lineStart = false;
+        }
+        return null;
+    }
+
+    /** Whether the text so far ends within quotes, where whitespace does not separate arguments. */
+    boolean inQuotes() {
+        return quote != 0;
+    }
+
+    /** The quote character the text so far ends within, or 0. */
+    char quote() {
+        return quote;
+    }
+
+    /** The last argument at the end of the text, or null; check {@link #inQuotes()} first. */
+    String end() {
+        return inToken ? take() : null;
+    }
+
+    private String take() {
+        inToken = false;
+        String arg = token.toString();
+        token.setLength(0);
+        return arg;
+    }
+}
@@ -0,0 +1,267 @@
+package me.bechberger.femtocli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many command lines against one {@link CompiledCli}, see {@link CompiledCli#runBatch(Reader, PrintStream, PrintStream, int)}.
+ *
+ * <p>Command lines are read and run one at a time, so that a batch can be fed through a pipe and need not fit
+ * in memory. They are separated by newlines, or by NUL characters if the first command line ends with one
+ * (so that command lines may contain newlines; newlines within quotes do not end the first command line).
+ * Each command line is split into arguments by an {@link ArgTokenizer}, with the same quoting rules as argument
+ * files. Empty lines and lines starting with {@code #} are skipped.
+ */
+final class Batch {
+
+    private Batch() {
+    }
+
+    /** A command line of the batch input, numbered from 1. */
+    record Line(int number, String text) {}
+
+    /**
+     * Reads the command lines of a batch input one at a time. The delimiter is decided by the end of the first
+     * command line: a NUL, or a newline outside of quotes. Should the input end within quotes before that, it
+     * is split at newlines, like any input without NUL characters.
+     */
+    static final class LineReader {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int pos;
+        private int len;
+        /** {@code '\n'} or {@code '\0'} once the end of the first command line was read, -1 before. */
+        private int delimiter = -1;
+        /** Tracks the quotes of the first command line. */
+        private final ArgTokenizer firstLine = new ArgTokenizer();
+        /** Command lines split off an unterminated first command line, see {@link #undecidedAtEnd()}. */
+        private final Deque<String> split = new ArrayDeque<>();
+        private int number;
+        private boolean eof;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /** The next command line, or null at the end of the input. */
+        Line next() throws IOException {
+            String text;
+            while ((text = readRecord()) != null) {
+                number++;
+                if (delimiter == '\n' && text.endsWith("\r")) text = text.substring(0, text.length() - 1);
+                String trimmed = text.strip();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    return new Line(number, text);
+                }
+            }
+            return null;
+        }
+
+        /** The text up to the next delimiter, or null at the end of the input. */
+        private String readRecord() throws IOException {
+            if (!split.isEmpty()) return split.removeFirst();
+            if (eof) return null;
+            line.setLength(0);
+            while (true) {
+                if (pos == len) {
+                    int n = reader.read(buffer);
+                    if (n < 0) {
+                        eof = true;
+                        return delimiter < 0 ? undecidedAtEnd() : line.toString();
+                    }
+                    pos = 0;
+                    len = n;
+                    continue;
+                }
+                char c = buffer[pos++];
+                if (c == delimiter || (delimiter < 0 && endsFirstLine(c))) {
+                    delimiter = c;
+                    return line.toString();
+                }
+                line.append(c);
+            }
+        }
+
+        /** Whether {@code c} ends the first command line, i.e. is a NUL or newline outside of quotes. */
+        private boolean endsFirstLine(char c) {
+            if ((c == '\0' || c == '\n') && !firstLine.inQuotes()) return true;
+            firstLine.accept(c);
+            return false;
+        }
+
+        /** The input ended before the first command line did: it is split at newlines. */
+        private String undecidedAtEnd() {
+            delimiter = '\n';
+            int start = 0;
+            int end;
+            while ((end = line.indexOf("\n", start)) >= 0) {
+                split.add(line.substring(start, end));
+                start = end + 1;
+            }
+            split.add(line.substring(start));
+            return split.removeFirst();
+        }
+    }
+
+    /** Splits a command line into arguments, see {@link ArgTokenizer}. */
+    static List<String> split(String line) {
+        ArgTokenizer tokenizer = new ArgTokenizer();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < line.length(); i++) {
+            String word = tokenizer.accept(line.charAt(i));
+            if (word != null) words.add(word);
+        }
+        if (tokenizer.inQuotes()) {
+            throw new IllegalArgumentException(tokenizer.quote() == '\'' ? "Unterminated single quote" : "Unterminated double quote");
+        }
+        String last = tokenizer.end();
+        if (last != null) words.add(last);
+        return words;
+    }
+
+    /**
+     * Runs all lines as they are read and returns the highest exit code (0 if every line succeeded).
+     * With {@code parallelism > 1}, lines run concurrently and their output is written in line order;
+     * at most {@code 2 * parallelism} lines are read ahead of the output.
+     */
+    static int run(CompiledCli cli, Reader commands, PrintStream out, PrintStream err, int parallelism) throws IOException {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        LineReader lines = new LineReader(commands);
+        int exitCode = 0;
+        Line line;
+        if (parallelism == 1) {
+            while ((line = lines.next()) != null) {
+                exitCode = Math.max(exitCode, runLine(cli, line, out, err));
+            }
+            return exitCode;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Deque<Future<RunResult>> pending = new ArrayDeque<>();
+            while ((line = lines.next()) != null) {
+                Line current = line;
+                pending.add(executor.submit(() -> {
+                    ByteArrayOutputStream lineOut = new ByteArrayOutputStream();
+                    ByteArrayOutputStream lineErr = new ByteArrayOutputStream();
+                    int code = runLine(cli, current, new PrintStream(lineOut, true), new PrintStream(lineErr, true));
+                    return new RunResult(lineOut.toString(), lineErr.toString(), code);
+                }));
+                if (pending.size() >= 2 * parallelism) {
+                    exitCode = Math.max(exitCode, print(pending.removeFirst(), out, err));
+                }
+            }
+            while (!pending.isEmpty()) {
+                exitCode = Math.max(exitCode, print(pending.removeFirst(), out, err));
+            }
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running batch", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Writes the output of a line that ran in parallel and returns its exit code. */
+    private static int print(Future<RunResult> future, PrintStream out, PrintStream err)
+            throws InterruptedException, ExecutionException {
+        RunResult result = future.get();
+        out.print(result.out());
+        err.print(result.err());
+        out.flush();
+        err.flush();
+        return result.exitCode();
+    }
+
+    static boolean isBatchInvocation(String[] args) {
+        return args.length > 0 && (args[0].equals("--batch") || args[0].startsWith("--batch="));
+    }
+
+    /** Whether a class has a no-arg constructor, checked once per class. */
+    private static final ClassValue<Boolean> HAS_NO_ARG_CONSTRUCTOR = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                type.getDeclaredConstructor();
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * Checks that each line of a {@code --batch} can get a fresh root command. Only done when {@code --batch} is
+     * given, so that runs without it do not depend on the constructor; {@link CompiledCli} requires the no-arg
+     * constructor anyway.
+     */
+    static void requireNoArgConstructor(Class<?> rootClass) {
+        if (!HAS_NO_ARG_CONSTRUCTOR.get(rootClass)) {
+            throw new IllegalArgumentException("CommandConfig.batchOption requires a no-arg constructor in "
+                    + rootClass.getName() + ", as every line of a batch runs against a new instance");
+        }
+    }
+
+    /**
+     * Handles {@code --batch FILE} for {@link CommandConfig#batchOption}. Each line runs against a new instance
+     * of {@code rootClass}, not against the root command instance that received {@code --batch}.
+     */
+    static int runFile(Class<?> rootClass, String[] args, PrintStream out, PrintStream err,
+                       Map<Class<?>, TypeConverter<?>> converters,
+                       CommandConfig commandConfig,
+                       Set<Class<?>> removedCommands) {
+        int consumed = args[0].equals("--batch") ? 2 : 1;
+        if (args.length < consumed) {
+            err.println("Error: Missing value for option: --batch");
+            return 2;
+        }
+        if (args.length > consumed) {
+            err.println("Error: --batch does not accept further arguments: " + args[consumed]);
+            return 2;
+        }
+        String file = consumed == 2 ? args[1] : args[0].substring("--batch=".length());
+        // lines of the batch are regular invocations, a nested --batch is just an unknown option
+        CommandConfig lineConfig = commandConfig.copy();
+        lineConfig.batchOption = false;
+        CompiledCli cli = new CompiledCli(rootClass, converters, lineConfig, removedCommands, CaptureMode.SYSTEM);
+        try {
+            if (file.equals("-")) {
+                return run(cli, new InputStreamReader(System.in, StandardCharsets.UTF_8), out, err, 1);
+            }
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                return run(cli, reader, out, err, 1);
+            }
+        } catch (IOException e) {
+            err.println("Error: Cannot read batch file " + file + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int runLine(CompiledCli cli, Line line, PrintStream out, PrintStream err) {
+        try {
+            return cli.run(out, err, split(line.text()).toArray(new String[0]));
+        } catch (RuntimeException e) {
+            err.println("Error: line " + line.number() + ": " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            return e instanceof IllegalArgumentException ? 2 : 1;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package me.bechberger.femtocli;
+
+/**
+ * Bitsets over option ordinals ({@link FemtoCli.OptionMeta#ordinal}), stored as plain {@code long[]} so that
+ * the per-parse state of even very wide commands is a few words and its checks are a few word operations.
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    /** An empty bitset for {@code size} bits. */
+    static long[] of(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((a[i] & b[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /** The lowest index set in {@code bits} but not in {@code present}, or -1. */
+    static int firstMissing(long[] bits, long[] present) {
+        for (int i = 0; i < bits.length; i++) {
+            long missing = bits[i] & ~present[i];
+            if (missing != 0) return (i << 6) + Long.numberOfTrailingZeros(missing);
+        }
+        return -1;
+    }
+
+    /** The lowest index set in {@code bits} at or after {@code from}, or -1. */
+    static int next(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) return -1;
+        long remaining = bits[word] & (-1L << from);
+        while (true) {
+            if (remaining != 0) return (word << 6) + Long.numberOfTrailingZeros(remaining);
+            if (++word == bits.length) return -1;
+            remaining = bits[word];
+        }
+    }
+}
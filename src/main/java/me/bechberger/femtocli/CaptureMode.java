@@ -0,0 +1,28 @@
+package me.bechberger.femtocli;
+
+/**
+ * How {@code runCaptured} collects the output of a command, see {@link FemtoCli.Builder#captureMode(CaptureMode)}.
+ */
+public enum CaptureMode {
+    /**
+     * Redirect {@link System#out} and {@link System#err} for the duration of the run (default).
+     *
+     * <p>Captures everything a command prints, but captured runs in the same JVM are serialized
+     * because the system streams are global.
+     */
+    SYSTEM,
+    /**
+     * Capture only what is written to {@link Spec#out}/{@link Spec#err} (and FemtoCli's own help and
+     * error output). The system streams are left alone, so captured runs can execute in parallel.
+     * Direct writes to {@link System#out} are not captured.
+     */
+    SPEC,
+    /**
+     * Like {@link #SPEC}, but fail the run with an {@link IllegalStateException} if the command
+     * writes to {@link System#out} or {@link System#err} from the invoking thread.
+     *
+     * <p>Intended for tests that check that commands only use {@link Spec#out}/{@link Spec#err}.
+     * While strict runs are active, the system streams are wrapped by a pass-through guard.
+     */
+    STRICT
+}
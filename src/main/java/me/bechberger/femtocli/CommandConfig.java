@@ -24,6 +24,20 @@ public class CommandConfig {
     public int helpExitCode = 0;
     /** Print usage to stdout instead of stderr when there's a CLI usage error (default: false, prints to stderr) */
     public boolean usageErrorsToStdout = false;
+    /**
+     * Accept {@code --batch FILE} (or {@code --batch=FILE}, {@code -} for stdin) as the only arguments
+     * of the root command, running each line of the file as a separate invocation (default: false).
+     * Each line runs against a new root command created with the no-arg constructor of the root command's
+     * class, which {@code --batch} requires; the state of the root command instance passed to {@code run} is
+     * not used.
+     */
+    public boolean batchOption = false;
+    /**
+     * Replace arguments {@code @FILE} with the whitespace-separated (and optionally quoted) arguments in
+     * {@code FILE}, recursively; {@code @-} reads them from standard input and {@code @@x} passes {@code @x}
+     * (default: false, not in agent mode)
+     */
+    public boolean expandArgFiles = false;
 
     public CommandConfig() {
     }
@@ -44,9 +58,20 @@ public class CommandConfig {
         c.similarOptionsSuggestionTemplate = similarOptionsSuggestionTemplate;
         c.helpExitCode = helpExitCode;
         c.usageErrorsToStdout = usageErrorsToStdout;
+        c.batchOption = batchOption;
+        c.expandArgFiles = expandArgFiles;
         return c;
     }
 
+    /** The settings that affect the rendered help, used as part of its cache key. */
+    record HelpSettings(boolean emptyLineAfterUsage, boolean emptyLineAfterDescription, boolean mixinStandardHelpOptions,
+                        boolean showDefaultValuesInHelp, String defaultValueHelpTemplate, boolean defaultValueOnNewLine) {}
+
+    HelpSettings helpSettings() {
+        return new HelpSettings(emptyLineAfterUsage, emptyLineAfterDescription, mixinStandardHelpOptions,
+                showDefaultValuesInHelp, defaultValueHelpTemplate, defaultValueOnNewLine);
+    }
+
     boolean effectiveEmptyLineAfterUsage(Command cmd) {
         return emptyLineAfterUsage || (cmd != null && cmd.emptyLineAfterUsage());
     }
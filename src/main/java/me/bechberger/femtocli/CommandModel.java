@@ -10,49 +10,259 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.Constructor;
 import java.util.*;
 
+/**
+ * A command model bound to a single command instance.
+ *
+ * <p>All annotation scanning happens once per command class in {@link Template}, which is cached
+ * via {@link ClassValue}. Binding a template to a new command instance only initializes the mixins
+ * and collects the option/parameter holder objects.
+ */
 final class CommandModel {
 
     final Object cmd;
+    /** Holder objects: index 0 is the command itself, index {@code i + 1} is the i-th mixin instance. */
+    final Object[] holders;
+    final Template template;
     final Map<String, FemtoCli.OptionMeta> optionsByName;
     final Map<Field, FemtoCli.OptionMeta> optionByField;
     final List<FemtoCli.OptionMeta> options;
     final List<FemtoCli.ParamInfo> parameters;
-    /** Populated by FemtoCli.parseOptions() for later required-option validation. */
-    Set<Field> seenFields;
-    /** Fields explicitly provided by the user (before default values are applied). */
-    Set<Field> userProvidedFields;
+    /** Options set by the user or a default value, populated by FemtoCli.parseOptions() for later required-option validation. */
+    long[] seenOptions;
+    /** Options explicitly provided by the user (before default values are applied). */
+    long[] providedOptions;
+    /** Raw values of multi-value options by ordinal, collected by FemtoCli.parseOptions(), or null if there are none. */
+    List<String>[] multiValues;
     /** Set to true by FemtoCli.parseOptions() when a '--' end-of-options marker is consumed. */
     boolean endOfOptionsSeen;
 
-    private CommandModel(Object cmd,
+    private CommandModel(Object cmd, Object[] holders, Template template) {
+        this.cmd = cmd;
+        this.holders = holders;
+        this.template = template;
+        this.optionsByName = template.optionsByName;
+        this.optionByField = template.optionByField;
+        this.options = template.options;
+        this.parameters = template.parameters;
+    }
+
+    /** Returns the object that owns the given option field (the command or one of its mixins). */
+    Object target(FemtoCli.OptionMeta meta) {
+        return holders[meta.holder];
+    }
+
+    /** Returns the object that owns the given parameter field (the command or one of its mixins). */
+    Object target(FemtoCli.ParamInfo param) {
+        return holders[param.holder];
+    }
+
+    private static final ClassValue<Template> TEMPLATES = new ClassValue<>() {
+        @Override
+        protected Template computeValue(Class<?> type) {
+            return Template.build(type, null);
+        }
+    };
+
+    /** The cached template of a command or mixin class, building and validating it on first use. */
+    static Template template(Class<?> type) {
+        return TEMPLATES.get(type);
+    }
+
+    static CommandModel of(Object cmd) throws Exception {
+        Template template = TEMPLATES.get(cmd.getClass());
+        Object[] holders = new Object[template.mixinFields.length + 1];
+        holders[0] = cmd;
+        boolean exactMixinTypes = true;
+        for (int i = 0; i < template.mixinFields.length; i++) {
+            Object mixin = initializeMixin(cmd, template, i);
+            holders[i + 1] = mixin;
+            exactMixinTypes &= mixin.getClass() == template.mixinFields[i].field.getType();
+        }
+        if (!exactMixinTypes) {
+            // A pre-assigned mixin of a subtype: scan the actual runtime classes (rare, not cached)
+            Class<?>[] mixinTypes = new Class<?>[holders.length - 1];
+            for (int i = 0; i < mixinTypes.length; i++) mixinTypes[i] = holders[i + 1].getClass();
+            template = Template.build(cmd.getClass(), mixinTypes);
+        }
+        return new CommandModel(cmd, holders, template);
+    }
+
+    private static Object initializeMixin(Object cmd, Template template, int index) throws Exception {
+        FieldAccess field = template.mixinFields[index];
+        Object mixin = field.get(cmd);
+        if (mixin == null) {
+            Constructor<?> ctor = template.mixinConstructors[index];
+            if (ctor == null) {
+                // Re-resolve to surface the original reflective exception
+                ctor = field.field.getType().getDeclaredConstructor();
+                ctor.setAccessible(true);
+            }
+            mixin = ctor.newInstance();
+            field.set(cmd, mixin);
+        }
+        return mixin;
+    }
+
+    /**
+     * Immutable, instance-independent view of a command class: its mixin fields, options,
+     * positional parameters and {@link Spec} fields, validated once.
+     */
+    static final class Template {
+        final FieldAccess[] mixinFields;
+        /** Accessible no-arg constructors of the mixin types, or null if resolution failed. */
+        final Constructor<?>[] mixinConstructors;
+        /** {@link Spec}-typed fields per holder, indexed like {@link CommandModel#holders}. */
+        final FieldAccess[][] specFields;
+        final Map<String, FemtoCli.OptionMeta> optionsByName;
+        final Map<Field, FemtoCli.OptionMeta> optionByField;
+        final List<FemtoCli.OptionMeta> options;
+        final List<FemtoCli.ParamInfo> parameters;
+        /**
+         * Option names by their name without leading dashes, in {@link #optionsByName} order, to normalize
+         * bare options in agent mode ({@code interval=1ms} to {@code --interval=1ms}) without scanning all options.
+         */
+        final Map<String, List<String>> bareOptions;
+        /** Like {@link #bareOptions}, but only boolean options, which may be given as a bare flag ({@code verbose}). */
+        final Map<String, List<String>> bareBooleanOptions;
+        /** {@link Bits} of the required options. */
+        final long[] requiredOptions;
+        /** {@link Bits} of the options with a {@link Option#defaultValue()}. */
+        final long[] defaultOptions;
+        /** Per option ordinal, the {@link Bits} of other options it {@link Option#prevents()}; null if no option prevents any. */
+        final long[][] preventedOptions;
+        /** Error for a {@link Option#prevents()} reference to an unknown option, reported on parse, or null. */
+        final String invalidPrevents;
+
+        private Template(FieldAccess[] mixinFields, Constructor<?>[] mixinConstructors, FieldAccess[][] specFields,
                          Map<String, FemtoCli.OptionMeta> optionsByName,
                          Map<Field, FemtoCli.OptionMeta> optionByField,
                          List<FemtoCli.OptionMeta> options,
                          List<FemtoCli.ParamInfo> parameters) {
-        this.cmd = cmd;
-        this.optionsByName = optionsByName;
-        this.optionByField = optionByField;
-        this.options = options;
-        this.parameters = parameters;
-    }
+            // number the options now that overridden ones are gone
+            Map<FemtoCli.OptionMeta, FemtoCli.OptionMeta> numbered = new IdentityHashMap<>();
+            for (int i = 0; i < options.size(); i++) {
+                FemtoCli.OptionMeta meta = new FemtoCli.OptionMeta(options.get(i), i);
+                numbered.put(options.get(i), meta);
+                options.set(i, meta);
+            }
+            optionsByName.replaceAll((name, meta) -> numbered.get(meta));
+            optionByField.replaceAll((field, meta) -> numbered.get(meta));
+            this.mixinFields = mixinFields;
+            this.mixinConstructors = mixinConstructors;
+            this.specFields = specFields;
+            this.optionsByName = Collections.unmodifiableMap(optionsByName);
+            this.optionByField = Collections.unmodifiableMap(optionByField);
+            this.options = Collections.unmodifiableList(options);
+            this.parameters = Collections.unmodifiableList(parameters);
+            this.bareOptions = new HashMap<>();
+            this.bareBooleanOptions = new HashMap<>();
+            for (Map.Entry<String, FemtoCli.OptionMeta> e : optionsByName.entrySet()) {
+                String name = e.getKey();
+                if (!name.startsWith("-")) continue;
+                String stripped = HelpRenderer.stripLeadingDashes(name);
+                bareOptions.computeIfAbsent(stripped, k -> new ArrayList<>(1)).add(name);
+                if (FemtoCli.isBooleanType(e.getValue().field.getType())) {
+                    bareBooleanOptions.computeIfAbsent(stripped, k -> new ArrayList<>(1)).add(name);
+                }
+            }
 
-    private static void initializeMixins(Object cmd) throws Exception {
-        for (Field field : FemtoCli.allFields(cmd.getClass())) {
-            if (field.getAnnotation(Mixin.class) != null) {
-                if (Modifier.isStatic(field.getModifiers())) {
-                    throw new FieldIsFinalException("@Mixin field must not be static: " + field);
+            int count = options.size();
+            this.requiredOptions = Bits.of(count);
+            this.defaultOptions = Bits.of(count);
+            Map<String, Integer> ordinals = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                FemtoCli.OptionMeta meta = options.get(i);
+                if (meta.opt.required()) Bits.set(requiredOptions, i);
+                if (!meta.opt.defaultValue().equals(FemtoCli.NO_DEFAULT_VALUE)) Bits.set(defaultOptions, i);
+                for (String name : meta.opt.names()) ordinals.put(name, i);
+            }
+            long[][] prevented = null;
+            String invalid = null;
+            for (int i = 0; i < count; i++) {
+                Option opt = options.get(i).opt;
+                for (String name : opt.prevents()) {
+                    Integer other = ordinals.get(name);
+                    if (other == null) {
+                        if (invalid == null) {
+                            invalid = "Option " + FemtoCli.preferredOptionName(opt) + " declares prevents={\"" + name
+                                    + "\"} but no such option exists";
+                        }
+                    } else if (other != i) {
+                        if (prevented == null) prevented = new long[count][];
+                        if (prevented[i] == null) prevented[i] = Bits.of(count);
+                        Bits.set(prevented[i], other);
+                    }
                 }
-                if (Modifier.isFinal(field.getModifiers())) {
-                    throw new FieldIsFinalException("@Mixin field must not be final: " + field);
+            }
+            this.preventedOptions = prevented;
+            this.invalidPrevents = invalid;
+        }
+
+        /**
+         * Scans {@code type}. If {@code mixinTypes} is null, the declared mixin field types are used.
+         */
+        static Template build(Class<?> type, Class<?>[] mixinTypes) {
+            List<FieldAccess> mixinFieldList = new ArrayList<>();
+            for (Field field : FemtoCli.allFields(type)) {
+                if (field.getAnnotation(Mixin.class) != null) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        throw new FieldIsFinalException("@Mixin field must not be static: " + field);
+                    }
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        throw new FieldIsFinalException("@Mixin field must not be final: " + field);
+                    }
+                    mixinFieldList.add(FieldAccess.of(field));
                 }
-                field.setAccessible(true);
-                if (field.get(cmd) == null) {
-                    Constructor<?> ctor = field.getType().getDeclaredConstructor();
+            }
+            FieldAccess[] mixinFields = mixinFieldList.toArray(new FieldAccess[0]);
+            Constructor<?>[] mixinConstructors = new Constructor<?>[mixinFields.length];
+            Class<?>[] holderTypes = new Class<?>[mixinFields.length + 1];
+            holderTypes[0] = type;
+            for (int i = 0; i < mixinFields.length; i++) {
+                Class<?> declaredType = mixinFields[i].field.getType();
+                holderTypes[i + 1] = mixinTypes != null ? mixinTypes[i] : declaredType;
+                try {
+                    Constructor<?> ctor = declaredType.getDeclaredConstructor();
                     ctor.setAccessible(true);
-                    Object mixin = ctor.newInstance();
-                    field.set(cmd, mixin);
+                    mixinConstructors[i] = ctor;
+                } catch (Exception | LinkageError ignored) {
+                    // reported when the mixin actually has to be instantiated
                 }
             }
+
+            Map<String, FemtoCli.OptionMeta> optionsByName = new LinkedHashMap<>();
+            Map<Field, FemtoCli.OptionMeta> optionByField = new LinkedHashMap<>();
+            List<FemtoCli.OptionMeta> options = new ArrayList<>();
+
+            // Collect mixin options first, then command options (so command overrides same-name options)
+            for (int h = 1; h < holderTypes.length; h++) {
+                collectOptionsFrom(holderTypes[h], h, optionsByName, optionByField, options);
+            }
+            collectOptionsFrom(type, 0, optionsByName, optionByField, options);
+
+            List<FemtoCli.ParamInfo> params = new ArrayList<>();
+            // Collect @Parameters from mixin objects first, then from the command itself
+            for (int h = 1; h < holderTypes.length; h++) {
+                collectParameters(holderTypes[h], h, params);
+            }
+            collectParameters(type, 0, params);
+            params.sort((a, b) -> Integer.compare(a.indexRange[0], b.indexRange[0]));
+
+            // Detect duplicate/overlapping scalar @Parameters indices
+            validateParameterIndices(params);
+
+            FieldAccess[][] specFields = new FieldAccess[holderTypes.length][];
+            for (int h = 0; h < holderTypes.length; h++) {
+                List<FieldAccess> fields = new ArrayList<>();
+                for (Field f : FemtoCli.allFields(holderTypes[h])) {
+                    if (Spec.class.isAssignableFrom(f.getType())) {
+                        fields.add(FieldAccess.of(f));
+                    }
+                }
+                specFields[h] = fields.toArray(new FieldAccess[0]);
+            }
+
+            return new Template(mixinFields, mixinConstructors, specFields, optionsByName, optionByField, options, params);
         }
     }
 
@@ -117,7 +327,7 @@ final class CommandModel {
     }
 
 
-    private static void addDeclaredOptions(Object holder,
+    private static void addDeclaredOptions(int holder,
                                           Class<?> declaredIn,
                                           IgnoreOptions ignore,
                                           Map<String, FemtoCli.OptionMeta> optionsByName,
@@ -137,14 +347,13 @@ final class CommandModel {
         }
     }
 
-    private static void collectOptionsFrom(Object holder,
+    private static void collectOptionsFrom(Class<?> type, int holder,
                                           Map<String, FemtoCli.OptionMeta> optionsByName,
                                           Map<Field, FemtoCli.OptionMeta> optionByField,
                                           List<FemtoCli.OptionMeta> options) {
-        IgnoreOptions ignore = holder.getClass().getAnnotation(IgnoreOptions.class);
+        IgnoreOptions ignore = type.getAnnotation(IgnoreOptions.class);
 
         // inherited first (older classes first), then declared: declared overrides inherited
-        Class<?> type = holder.getClass();
         List<Class<?>> hierarchy = new ArrayList<>();
         for (Class<?> current = type.getSuperclass(); current != null && current != Object.class; current = current.getSuperclass()) {
             hierarchy.add(current);
@@ -155,56 +364,15 @@ final class CommandModel {
         addDeclaredOptions(holder, type, ignore, optionsByName, optionByField, options);
     }
 
-
-    static CommandModel of(Object cmd) throws Exception {
-        initializeMixins(cmd);
-
-
-        Map<String, FemtoCli.OptionMeta> optionsByName = new LinkedHashMap<>();
-        Map<Field, FemtoCli.OptionMeta> optionByField = new LinkedHashMap<>();
-        List<FemtoCli.OptionMeta> options = new ArrayList<>();
-
-        // Collect mixin options first, then command options (so command overrides same-name options)
-        for (Field field : FemtoCli.allFields(cmd.getClass())) {
-            if (field.getAnnotation(Mixin.class) != null) {
-                field.setAccessible(true);
-                if (field.get(cmd) != null) {
-                    collectOptionsFrom(field.get(cmd), optionsByName, optionByField, options);
-                }
-            }
-        }
-        collectOptionsFrom(cmd, optionsByName, optionByField, options);
-
-        List<FemtoCli.ParamInfo> params = new ArrayList<>();
-        // Collect @Parameters from mixin objects first
-        for (Field field : FemtoCli.allFields(cmd.getClass())) {
-            if (field.getAnnotation(Mixin.class) != null) {
-                field.setAccessible(true);
-                Object mixin = field.get(cmd);
-                if (mixin != null) {
-                    collectParameters(mixin, mixin, params);
-                }
-            }
-        }
-        // Then collect @Parameters from command itself
-        collectParameters(cmd, cmd, params);
-        params.sort((a, b) -> Integer.compare(a.indexRange[0], b.indexRange[0]));
-
-        // Detect duplicate/overlapping scalar @Parameters indices
-        validateParameterIndices(params);
-
-        return new CommandModel(cmd, optionsByName, optionByField, options, params);
-    }
-
-    private static void collectParameters(Object holder, Object target, List<FemtoCli.ParamInfo> params) {
-        for (Field f : FemtoCli.allFields(holder.getClass())) {
+    private static void collectParameters(Class<?> type, int holder, List<FemtoCli.ParamInfo> params) {
+        for (Field f : FemtoCli.allFields(type)) {
             Parameters p = f.getAnnotation(Parameters.class);
             if (p != null) {
                 if (Modifier.isFinal(f.getModifiers())) {
                     throw new FieldIsFinalException("@Parameters field must not be final: " + f);
                 }
                 f.setAccessible(true);
-                params.add(new FemtoCli.ParamInfo(f, target, p, FemtoCli.parseRange(p.index()), FemtoCli.parseRange(p.arity())));
+                params.add(new FemtoCli.ParamInfo(f, holder, p, FemtoCli.parseRange(p.index()), FemtoCli.parseRange(p.arity())));
             }
         }
     }
@@ -247,4 +415,4 @@ final class CommandModel {
         String end = range[1] < 0 ? "*" : String.valueOf(range[1]);
         return range[0] + ".." + end;
     }
-}
\ No newline at end of file
+}
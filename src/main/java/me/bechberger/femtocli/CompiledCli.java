@@ -0,0 +1,170 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable, reusable CLI for one root command class, created via {@link FemtoCli.Builder#build(Class)}.
+ *
+ * <p>All annotation scanning and validation for the reachable command tree happens once when the
+ * instance is built, so configuration errors (duplicate option names, final fields, overlapping
+ * parameter indices, unlisted default subcommands, ...) surface immediately instead of on first use.
+ * {@link Command#lazySubcommands() Lazy subcommands} are the exception: they are loaded and checked when selected.
+ *
+ * <p>Every invocation creates a fresh root command instance, so all methods can be called
+ * concurrently from many threads:
+ * <pre>{@code
+ * CompiledCli cli = FemtoCli.builder()
+ *         .commandConfig(c -> c.version = "1.0")
+ *         .build(AdminCommand.class);
+ *
+ * // per request
+ * RunResult res = cli.runCaptured(args);
+ * }</pre>
+ *
+ * <p>Note that with the default {@link CaptureMode#SYSTEM}, {@link #runCaptured(String...)} redirects
+ * {@link System#out} and {@link System#err} for the duration of the run, so captured runs are serialized.
+ * Use {@link FemtoCli.Builder#captureMode(CaptureMode)} with {@link CaptureMode#SPEC} for parallel captured runs.
+ */
+public final class CompiledCli {
+
+    private final Class<?> rootClass;
+    private final Constructor<?> rootConstructor;
+    private final Map<Class<?>, TypeConverter<?>> converters;
+    private final CommandConfig commandConfig;
+    private final Set<Class<?>> removedCommands;
+    private final CaptureMode captureMode;
+
+    CompiledCli(Class<?> rootClass,
+                Map<Class<?>, TypeConverter<?>> converters,
+                CommandConfig commandConfig,
+                Set<Class<?>> removedCommands,
+                CaptureMode captureMode) {
+        this.rootClass = Objects.requireNonNull(rootClass);
+        this.converters = Map.copyOf(converters);
+        this.commandConfig = commandConfig.copy();
+        this.removedCommands = Set.copyOf(removedCommands);
+        this.captureMode = captureMode;
+        try {
+            this.rootConstructor = rootClass.getDeclaredConstructor();
+            this.rootConstructor.setAccessible(true);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot instantiate root: " + rootClass.getName(), e);
+        }
+        precompute();
+    }
+
+    /** Builds the cached models of all reachable commands, which validates their annotations. */
+    private void precompute() {
+        Set<Class<?>> seen = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.add(rootClass);
+        while (!pending.isEmpty()) {
+            Class<?> cls = pending.removeFirst();
+            if (!seen.add(cls) || removedCommands.contains(cls)) continue;
+            CommandModel.template(cls);
+            Subcommands subcommands = Subcommands.of(cls);
+            Command ann = cls.getAnnotation(Command.class);
+            if (ann != null && ann.defaultSubcommand() != void.class
+                    && !removedCommands.contains(ann.defaultSubcommand())
+                    && !subcommands.classes.contains(ann.defaultSubcommand())) {
+                throw new IllegalArgumentException(
+                        "defaultSubcommand " + ann.defaultSubcommand().getSimpleName()
+                        + " must be listed in subcommands() of @Command on " + cls.getSimpleName());
+            }
+            pending.addAll(subcommands.classes);
+        }
+    }
+
+    /** The root command class. */
+    public Class<?> rootClass() {
+        return rootClass;
+    }
+
+    private Object newRoot() {
+        try {
+            return rootConstructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot instantiate root: " + rootClass.getName(), e);
+        }
+    }
+
+    public int run(String... args) {
+        return run(System.out, System.err, args);
+    }
+
+    public int run(PrintStream out, PrintStream err, String... args) {
+        return FemtoCli.execute(newRoot(), out, err, args, converters, commandConfig, false, removedCommands);
+    }
+
+    public RunResult runCaptured(String... args) {
+        return FemtoCli.captureExecute(newRoot(), args, converters, commandConfig, false, removedCommands, captureMode);
+    }
+
+    /** Run with agent args (a single comma-separated string), see {@link FemtoCli#runAgent(Object, String)}. */
+    public int runAgent(PrintStream out, PrintStream err, String agentArgs) {
+        String[] argv = AgentArgs.toArgv(agentArgs);
+        return FemtoCli.execute(newRoot(), out, err, argv, converters, commandConfig, true, removedCommands);
+    }
+
+    public RunResult runAgentCaptured(String agentArgs) {
+        String[] argv = AgentArgs.toArgv(agentArgs);
+        return FemtoCli.captureExecute(newRoot(), argv, converters, commandConfig, true, removedCommands, captureMode);
+    }
+
+    /**
+     * Run every command line read from {@code commands} against a fresh root instance, sequentially,
+     * writing to {@link System#out} and {@link System#err}.
+     *
+     * @return the highest exit code of all lines, 0 if all succeeded
+     * @see #runBatch(Reader, PrintStream, PrintStream, int)
+     */
+    public int runBatch(Reader commands) throws IOException {
+        return runBatch(commands, System.out, System.err, 1);
+    }
+
+    /**
+     * Run every command line read from {@code commands} against a fresh root instance.
+     *
+     * <p>Lines are read and run one at a time, so a batch can be fed through a pipe. They are separated
+     * by newlines, or by NUL characters if the first line ends with one (newlines within quotes do not
+     * end it), and are split into arguments like {@link CommandConfig#expandArgFiles argument files}:
+     * {@code '...'} and {@code "..."} quote, and within quotes {@code \} escapes the next character.
+     * Empty lines and lines starting with {@code #} are skipped. A line that fails with an exception
+     * is reported on {@code err} and does not stop the batch.
+     *
+     * <p>With {@code parallelism > 1}, up to that many lines run concurrently on a bounded thread pool.
+     * The lines must then be independent of each other and write through {@link Spec#out}/{@link Spec#err};
+     * their output is buffered and written in line order.
+     *
+     * @return the highest exit code of all lines, 0 if all succeeded
+     */
+    public int runBatch(Reader commands, PrintStream out, PrintStream err, int parallelism) throws IOException {
+        return Batch.run(this, commands, out, err, parallelism);
+    }
+
+    /**
+     * Parse arguments into a fresh root command without invoking Runnable/Callable methods.
+     *
+     * @return the parsed command object, either the root command or the selected subcommand
+     */
+    public Object parse(String... args) {
+        return FemtoCli.parseExecute(newRoot(), System.out, System.err, args, converters, commandConfig, false, removedCommands);
+    }
+
+    /** Parse agent args into a fresh root command without invoking Runnable/Callable methods. */
+    public Object parseAgent(String agentArgs) {
+        String[] argv = AgentArgs.toArgv(agentArgs);
+        return FemtoCli.parseExecute(newRoot(), System.out, System.err, argv, converters, commandConfig, true, removedCommands);
+    }
+}
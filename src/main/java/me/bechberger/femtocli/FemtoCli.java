@@ -3,19 +3,29 @@ package me.bechberger.femtocli;
 import me.bechberger.femtocli.annotations.Command;
 import me.bechberger.femtocli.annotations.Option;
 import me.bechberger.femtocli.annotations.Parameters;
+import me.bechberger.femtocli.annotations.Stateful;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * Minimal reflection-based CLI runner with Java 21 features.
@@ -29,6 +39,7 @@ public final class FemtoCli {
         private final Map<Class<?>, TypeConverter<?>> converters = new HashMap<>();
         private final Set<Class<?>> removedCommands = new HashSet<>();
         private CommandConfig commandConfig = new CommandConfig();
+        private CaptureMode captureMode = CaptureMode.SYSTEM;
 
         public <T> Builder registerType(Class<T> type, TypeConverter<T> converter) {
             converters.put(Objects.requireNonNull(type), Objects.requireNonNull(converter));
@@ -62,6 +73,17 @@ public final class FemtoCli {
             return this;
         }
 
+        /**
+         * Choose how {@link #runCaptured(Object, String...)} collects output. The default,
+         * {@link CaptureMode#SYSTEM}, redirects the system streams and serializes captured runs;
+         * {@link CaptureMode#SPEC} and {@link CaptureMode#STRICT} only capture {@link Spec#out}/{@link Spec#err}
+         * and can run concurrently.
+         */
+        public Builder captureMode(CaptureMode captureMode) {
+            this.captureMode = Objects.requireNonNull(captureMode);
+            return this;
+        }
+
         public int run(Object root, String... args) {
             return run(root, System.out, System.err, args);
         }
@@ -71,7 +93,7 @@ public final class FemtoCli {
         }
 
         public RunResult runCaptured(Object root, String... args) {
-            return FemtoCli.captureExecute(root, args, converters, commandConfig, false, removedCommands);
+            return FemtoCli.captureExecute(root, args, converters, commandConfig, false, removedCommands, captureMode);
         }
 
         /**
@@ -91,6 +113,27 @@ public final class FemtoCli {
             String[] argv = AgentArgs.toArgv(agentArgs);
             return FemtoCli.parseExecute(root, System.out, System.err, argv, converters, commandConfig, true, removedCommands);
         }
+
+        /**
+         * Run every command line read from {@code commands} against a fresh instance of
+         * {@code rootClass}, reusing the compiled command models, see {@link CompiledCli#runBatch(Reader)}.
+         *
+         * @return the highest exit code of all lines, 0 if all succeeded
+         */
+        public int runBatch(Class<?> rootClass, Reader commands) throws IOException {
+            return build(rootClass).runBatch(commands);
+        }
+
+        /**
+         * Create an immutable, thread-safe CLI for the given root command class with the current
+         * configuration. Later changes to this builder do not affect the returned instance.
+         *
+         * @throws IllegalArgumentException if the root class cannot be instantiated
+         *         or a reachable command is misconfigured
+         */
+        public CompiledCli build(Class<?> rootClass) {
+            return new CompiledCli(rootClass, converters, commandConfig, removedCommands, captureMode);
+        }
     }
 
     public static Builder builder() { return new Builder(); }
@@ -154,7 +197,17 @@ public final class FemtoCli {
 
     public static RunResult runAgentCaptured(Object root, String agentArgs) {
         String[] argv = AgentArgs.toArgv(agentArgs);
-        return captureExecute(root, argv, Map.of(), new CommandConfig(), true, Set.of());
+        return captureExecute(root, argv, Map.of(), new CommandConfig(), true, Set.of(), CaptureMode.SYSTEM);
+    }
+
+    /**
+     * Split agent args into the argv that {@link #runAgent(Object, String)} parses, for example to read them
+     * from a file or {@link java.nio.CharBuffer} without building a {@link String} first.
+     *
+     * @throws IllegalArgumentException if the agent args are malformed (empty token, bad escape, unterminated quote)
+     */
+    public static String[] agentArgsToArgv(CharSequence agentArgs) {
+        return AgentArgs.toArgv(agentArgs);
     }
 
     /** Parse agent args into command objects without invoking Runnable/Callable methods. */
@@ -166,23 +219,46 @@ public final class FemtoCli {
     private static final Object CAPTURE_LOCK = new Object();
 
     /**
-     * Runs the CLI, capturing {@link System#out} and {@link System#err} into a {@link RunResult}.
+     * Runs the CLI, capturing its output into a {@link RunResult}.
      *
-     * <p><strong>Thread safety:</strong> This method synchronizes on {@code CAPTURE_LOCK} to
+     * <p>With {@link CaptureMode#SYSTEM}, {@link System#out} and {@link System#err} are redirected.
+     * <strong>Thread safety:</strong> This synchronizes on {@code CAPTURE_LOCK} to
      * prevent concurrent global {@code System.out}/{@code System.err} mutations.
      * However, a concurrent call to a non-capturing method like {@link #run(Object, String...)}
      * (which reads {@code System.out} without acquiring the lock) may observe the
      * temporarily redirected stream. In typical single-threaded CLI usage this is not an issue.
+     *
+     * <p>The other modes only capture the per-invocation streams and take no lock.
      */
-    private static RunResult captureExecute(Object root, String[] args,
+    static RunResult captureExecute(Object root, String[] args,
                                             Map<Class<?>, TypeConverter<?>> converters,
                                             CommandConfig commandConfig,
                                             boolean agentMode,
-                                            Set<Class<?>> removedCommands) {
+                                            Set<Class<?>> removedCommands,
+                                            CaptureMode captureMode) {
         ByteArrayOutputStream outStream = new ByteArrayOutputStream();
         ByteArrayOutputStream errStream = new ByteArrayOutputStream();
         PrintStream out = new PrintStream(outStream);
         PrintStream err = new PrintStream(errStream);
+        if (captureMode == CaptureMode.SPEC) {
+            int exitCode = execute(root, out, err, args, converters, commandConfig, agentMode, removedCommands);
+            return new RunResult(outStream.toString(), errStream.toString(), exitCode);
+        }
+        if (captureMode == CaptureMode.STRICT) {
+            int exitCode;
+            String written;
+            String enclosing = SystemStreamGuard.begin();
+            try {
+                exitCode = execute(root, out, err, args, converters, commandConfig, agentMode, removedCommands);
+            } finally {
+                written = SystemStreamGuard.end(enclosing);
+            }
+            if (written != null) {
+                throw new IllegalStateException("Command " + root.getClass().getName() + " wrote to " + written
+                        + " directly; use Spec.out()/Spec.err() in strict capture mode");
+            }
+            return new RunResult(outStream.toString(), errStream.toString(), exitCode);
+        }
         synchronized (CAPTURE_LOCK) {
             PrintStream oldOut = System.out;
             PrintStream oldErr = System.err;
@@ -201,7 +277,7 @@ public final class FemtoCli {
     private static final String PARSE_MODE_HELP_MSG =
             "--help/--version are not supported in parse mode; use run/runCaptured instead";
 
-    private static void rejectHelpVersion(Deque<String> tokens, boolean agentMode) {
+    private static void rejectHelpVersion(Tokens tokens, boolean agentMode) {
         if (isHelpOrVersionToken(tokens, agentMode)) {
             throw new IllegalArgumentException(PARSE_MODE_HELP_MSG);
         }
@@ -232,16 +308,21 @@ public final class FemtoCli {
         return root;
     }
 
-    private static int execute(Object root, PrintStream out, PrintStream err, String[] args,
+    static int execute(Object root, PrintStream out, PrintStream err, String[] args,
                                Map<Class<?>, TypeConverter<?>> converters,
                                CommandConfig commandConfig,
                                boolean agentMode,
                                Set<Class<?>> removedCommands) {
-        return (int) executeInternal(instantiateRoot(root), out, err, args, converters,
+        Object instance = instantiateRoot(root);
+        if (commandConfig.batchOption && !agentMode && Batch.isBatchInvocation(args)) {
+            Batch.requireNoArgConstructor(instance.getClass());
+            return Batch.runFile(instance.getClass(), args, out, err, converters, commandConfig, removedCommands);
+        }
+        return (int) executeInternal(instance, out, err, args, converters,
                 commandConfig, agentMode, removedCommands, false);
     }
 
-    private static Object parseExecute(Object root, PrintStream out, PrintStream err, String[] args,
+    static Object parseExecute(Object root, PrintStream out, PrintStream err, String[] args,
                                        Map<Class<?>, TypeConverter<?>> converters,
                                        CommandConfig commandConfig,
                                        boolean agentMode,
@@ -256,22 +337,21 @@ public final class FemtoCli {
      * or the parsed command {@link Object} in parse mode ({@code parseOnly=true}).
      */
     private static Object executeInternal(Object root, PrintStream out, PrintStream err, String[] args,
-                                          Map<Class<?>, TypeConverter<?>> converters,
+                                          Map<Class<?>, TypeConverter<?>> registeredConverters,
                                           CommandConfig commandConfig,
                                           boolean agentMode,
                                           Set<Class<?>> removedCommands,
                                           boolean parseOnly) {
-        UsageContext previous = USAGE_CONTEXT.get();
-        Set<Class<?>> previousRemoved = REMOVED_COMMANDS.get();
+        Converters converters = new Converters(registeredConverters);
+        Invocation inv = new Invocation(out, err, converters, commandConfig, agentMode, removedCommands);
+        Tokens tokens = commandConfig.expandArgFiles && !agentMode
+                ? Tokens.expandingArgFiles(root, args) : Tokens.of(args);
         try {
-            REMOVED_COMMANDS.set(removedCommands);
-            var tokens = new ArrayDeque<String>(args.length);
-            for (String a : args) tokens.add(a);
             Object cmd = root;
             List<Object> commandChain = new ArrayList<>();
-            List<String> commandPath = new ArrayList<>();
+            List<String> commandPath = inv.commandPath;
             commandPath.add(commandName(root));
-            Set<Field> preParsedFields = Set.of();
+            long[] preParsedOptions = null;
 
             // Process commands and their options in sequence
             while (true) {
@@ -279,12 +359,12 @@ public final class FemtoCli {
                 if (parseOnly) {
                     rejectHelpVersion(tokens, agentMode);
                 } else {
-                    int hvResult = checkHelpVersion(tokens, agentMode, cmd, root, out, commandPath, commandConfig);
+                    int hvResult = checkHelpVersion(tokens, cmd, root, inv);
                     if (hvResult >= 0) return hvResult;
                 }
 
                 // If the current command has no subcommands, it's the final command
-                if (!hasSubcommands(cmd.getClass())) {
+                if (!hasSubcommands(cmd.getClass(), removedCommands)) {
                     // Validate that no defaultSubcommand is set on a command with no reachable subcommands
                     Command ann = cmd.getClass().getAnnotation(Command.class);
                     if (ann != null && ann.defaultSubcommand() != void.class) {
@@ -295,27 +375,24 @@ public final class FemtoCli {
 
                 // This command has subcommands: parse its options, then look for subcommand
                 CommandModel model = CommandModel.of(cmd);
-                injectSpec(model, out, err, commandPath, commandConfig, commandChain, agentMode);
+                injectSpec(model, inv, commandChain);
                 if (agentMode) {
-                    normalizeBareOptionTokens(cmd, tokens, model);
+                    normalizeBareOptionTokens(cmd, tokens, model, removedCommands);
                 }
-                setUsageCtx(commandPath, commandConfig, agentMode);
-                parseOptions(model, cmd, tokens, converters,
-                        (USAGE_CONTEXT.get() != null ? USAGE_CONTEXT.get().commandConfig : commandConfig), true, Set.of());
+                parseOptions(model, cmd, tokens, converters, commandConfig, true, null);
 
                 // Validate prevents constraints on the parent command
-                validateRequiredOptions(cmd, model.options, model.seenFields, model.userProvidedFields);
+                validateRequiredOptions(cmd, model);
 
                 // Consume leading positional parameter values for this command so that
                 // the subcommand lookup below sees the actual subcommand name.
-                List<String> parentPositionals = consumeLeadingPositionalTokens(cmd, tokens, model, agentMode);
+                List<String> parentPositionals = consumeLeadingPositionalTokens(cmd, tokens, model, inv);
 
                 // After parsing options, check if there's a subcommand
                 if (tokens.isEmpty()) {
-                    bindPositionals(cmd, parentPositionals, model.parameters, converters);
+                    bindPositionals(cmd, parentPositionals, null, model, converters);
                     if (parseOnly) return cmd;
-                    setUsageCtx(commandPath, commandConfig, agentMode);
-                    return invoke(cmd);
+                    return runCallback(cmd, inv);
                 }
 
                 // Check for help/version again after parsing options
@@ -324,7 +401,7 @@ public final class FemtoCli {
                     if (parseOnly) {
                         rejectHelpVersion(tokens, agentMode);
                     } else {
-                        int hvResult = checkHelpVersion(tokens, agentMode, cmd, root, out, commandPath, commandConfig);
+                        int hvResult = checkHelpVersion(tokens, cmd, root, inv);
                         if (hvResult >= 0) {
                             maybeBindPositionals(cmd, parentPositionals, model, converters);
                             return hvResult;
@@ -338,7 +415,7 @@ public final class FemtoCli {
                 // all remaining tokens are positional arguments.
                 if (!model.endOfOptionsSeen) {
                     // Check for subcommand class
-                    Class<?> sub = findSubcommand(cmd.getClass(), next);
+                    Class<?> sub = findSubcommand(cmd, next, removedCommands);
                     if (sub != null) {
                         tokens.removeFirst();
                         maybeBindPositionals(cmd, parentPositionals, model, converters);
@@ -359,12 +436,11 @@ public final class FemtoCli {
                         if (mc != null && !mc.name().isBlank()) {
                             commandPath.add(mc.name());
                         }
-                        setUsageCtx(commandPath, commandConfig, agentMode);
                         method.setAccessible(true);
                         var wrapper = new SubcommandMethodWrapper(cmd, method);
-                        parseInto(wrapper, out, err, tokens, converters, Set.of(), agentMode, commandChain);
+                        parseInto(wrapper, tokens, null, inv, commandChain);
                         if (parseOnly) return cmd;
-                        return wrapper.call();
+                        return runCallback(wrapper, inv);
                     }
                 }
 
@@ -375,15 +451,14 @@ public final class FemtoCli {
                         throw new IllegalArgumentException(PARSE_MODE_HELP_MSG);
                     }
                     maybeBindPositionals(cmd, parentPositionals, model, converters);
-                    setUsageCtx(commandPath, commandConfig, agentMode);
-                    usage(cmd, out);
+                    usage(cmd, inv, out);
                     return commandConfig.helpExitCode;
                 }
 
                 // No subcommand found – check for a default subcommand
                 Command cmdAnn = cmd.getClass().getAnnotation(Command.class);
                 Class<?> defaultSub = cmdAnn != null ? cmdAnn.defaultSubcommand() : void.class;
-                if (defaultSub != void.class && !isCommandRemoved(defaultSub)) {
+                if (defaultSub != void.class && !removedCommands.contains(defaultSub)) {
                     validateDefaultSubcommandListed(defaultSub, cmdAnn, cmd.getClass());
                     // Put positionals back – they become positionals for the default subcommand
                     for (int i = parentPositionals.size() - 1; i >= 0; i--) tokens.addFirst(parentPositionals.get(i));
@@ -396,7 +471,7 @@ public final class FemtoCli {
                 }
                 // Put positionals back for parseInto
                 for (int i = parentPositionals.size() - 1; i >= 0; i--) tokens.addFirst(parentPositionals.get(i));
-                preParsedFields = model.userProvidedFields != null ? model.userProvidedFields : Set.of();
+                preParsedOptions = model.providedOptions;
                 // Propagate end-of-options marker so final parsing respects it
                 if (model.endOfOptionsSeen) {
                     tokens.addFirst("--");
@@ -405,32 +480,15 @@ public final class FemtoCli {
             }
 
             // Final command: full parsing (options + positionals + required validation)
-            setUsageCtx(commandPath, commandConfig, agentMode);
-            parseInto(cmd, out, err, tokens, converters, preParsedFields, agentMode, commandChain);
+            parseInto(cmd, tokens, preParsedOptions, inv, commandChain);
             if (parseOnly) return cmd;
-            return invoke(cmd);
+            return runCallback(cmd, inv);
 
         } catch (UsageEx e) {
-            if (parseOnly) {
-                if (e.help || e.version) {
-                    throw new IllegalArgumentException(PARSE_MODE_HELP_MSG, e);
-                }
-                throw new IllegalArgumentException(e.getMessage(), e);
-            }
-            Object target = e.cmd != null ? e.cmd : root;
-            if (e.help) {
-                usage(target, out);
-                return commandConfig.helpExitCode;
-            }
-            if (e.version) {
-                version(root, out);
-                return 0;
-            }
-            PrintStream errorStream = commandConfig.usageErrorsToStdout ? out : err;
-            errorStream.println("Error: " + e.getMessage());
-            errorStream.println();
-            usage(target, errorStream);
-            return 2;
+            return handleUsageEx(e, root, inv, parseOnly);
+        } catch (LazyValues.InvalidValueException e) {
+            // thrown while the command consumed an Iterator or Stream parameter or its argument files
+            return handleUsageEx(e.usage, root, inv, parseOnly);
         } catch (FieldIsFinalException | IllegalStateException | IllegalArgumentException e) {
             throw e;
         } catch (Exception e) {
@@ -441,34 +499,58 @@ public final class FemtoCli {
             err.println("Error: " + (msg != null ? msg : e.toString()));
             return 1;
         } finally {
-            if (previous == null) USAGE_CONTEXT.remove(); else USAGE_CONTEXT.set(previous);
-            if (previousRemoved == null) REMOVED_COMMANDS.remove(); else REMOVED_COMMANDS.set(previousRemoved);
+            // a parsed command may still read its streaming parameter from the remaining tokens
+            if (!parseOnly || !tokens.isStreaming()) tokens.close();
         }
     }
 
-    private static void normalizeBareOptionTokens(Object cmdForErrors, Deque<String> tokens, CommandModel model) throws UsageEx {
+    private static Object handleUsageEx(UsageEx e, Object root, Invocation inv, boolean parseOnly) {
+        if (parseOnly) {
+            if (e.help || e.version) {
+                throw new IllegalArgumentException(PARSE_MODE_HELP_MSG, e);
+            }
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        Object target = e.cmd != null ? e.cmd : root;
+        if (e.help) {
+            usage(target, inv, inv.out);
+            return inv.config.helpExitCode;
+        }
+        if (e.version) {
+            version(root, inv.config, inv.out);
+            return 0;
+        }
+        PrintStream errorStream = inv.config.usageErrorsToStdout ? inv.out : inv.err;
+        errorStream.println("Error: " + e.getMessage());
+        errorStream.println();
+        usage(target, inv, errorStream);
+        return 2;
+    }
+
+    private static void normalizeBareOptionTokens(Object cmdForErrors, Tokens tokens, CommandModel model,
+                                                  Set<Class<?>> removedCommands) throws UsageEx {
         if (tokens.isEmpty() || model == null) return;
-        List<String> normalized = new ArrayList<>(tokens.size());
+        List<String> remaining = tokens.remaining();
+        List<String> normalized = new ArrayList<>(remaining.size());
+        Subcommands subcommands = Subcommands.of(cmdForErrors.getClass());
         boolean seenSubcommand = false;
-        for (String t : tokens) {
+        for (String t : remaining) {
             if (seenSubcommand) {
                 // After a subcommand token, stop normalizing — remaining tokens belong to the subcommand
                 normalized.add(t);
             } else {
-                normalized.add(normalizeBareOptionToken(cmdForErrors, t, model));
                 // Check if this token is a subcommand name (un-normalized)
-                if (!t.startsWith("-") && !t.contains("=")
-                        && (findSubcommand(cmdForErrors.getClass(), t) != null
-                            || findSubcommandMethod(cmdForErrors.getClass(), t) != null)) {
-                    seenSubcommand = true;
-                }
+                boolean isSubcommand = !t.startsWith("-") && t.indexOf('=') < 0
+                        && (subcommands.findClass(cmdForErrors, t, removedCommands) != null || subcommands.findMethod(t) != null);
+                normalized.add(normalizeBareOptionToken(cmdForErrors, t, model, isSubcommand));
+                seenSubcommand = isSubcommand;
             }
         }
-        tokens.clear();
-        tokens.addAll(normalized);
+        tokens.replaceRemaining(normalized);
     }
 
-    private static String normalizeBareOptionToken(Object cmdForErrors, String token, CommandModel model) throws UsageEx {
+    private static String normalizeBareOptionToken(Object cmdForErrors, String token, CommandModel model,
+                                                   boolean isSubcommand) throws UsageEx {
         if (token.isEmpty() || token.startsWith("-")) {
             return token;
         }
@@ -478,33 +560,31 @@ public final class FemtoCli {
 
         // Support bare boolean flags without '=' in agent mode, if unambiguous and boolean.
         // Example: "flag" is normalized to "--flag" if --flag is a known boolean option.
-        if (!token.contains("=")) {
+        int eq = token.indexOf('=');
+        if (eq < 0) {
             // Keep subcommand tokens intact; command routing should win over option shorthand.
-            if (findSubcommand(cmdForErrors.getClass(), token) != null
-                    || findSubcommandMethod(cmdForErrors.getClass(), token) != null) {
+            if (isSubcommand) {
+                return token;
+            }
+            List<String> candidates = model.template.bareBooleanOptions.get(token);
+            if (candidates == null) {
                 return token;
             }
-            List<String> candidates = getCandidates(model, token, true);
             if (candidates.size() == 1) {
                 return candidates.get(0);
             }
-            if (candidates.size() > 1) {
-                throw new UsageEx(cmdForErrors,
-                        "Ambiguous bare option '" + token + "' (use full name): " + String.join(", ", candidates));
-            }
-            return token;
+            throw new UsageEx(cmdForErrors,
+                    "Ambiguous bare option '" + token + "' (use full name): " + String.join(", ", candidates));
         }
 
         // Only treat tokens containing '=' as potential bare options to avoid interfering with positionals/subcommands.
-        int eq = token.indexOf('=');
-        String bareName = token.substring(0, eq);
-        if (bareName.isBlank()) {
+        if (eq == 0) {
             return token;
         }
+        String bareName = token.substring(0, eq);
+        List<String> candidates = model.template.bareOptions.get(bareName);
 
-        List<String> candidates = getCandidates(model, bareName, false);
-
-        if (candidates.isEmpty()) {
+        if (candidates == null) {
             return token;
         }
         // If multiple candidates exist but they all map to the same field, pick the long form if present.
@@ -529,27 +609,6 @@ public final class FemtoCli {
         return candidates.get(0) + token.substring(eq);
     }
 
-    private static List<String> getCandidates(CommandModel model, String bareName, boolean requireBoolean) {
-        List<String> candidates = new ArrayList<>();
-        for (var e : model.optionsByName.entrySet()) {
-            String optName = e.getKey();
-            if (!optName.startsWith("-")) {
-                continue;
-            }
-
-            OptionMeta meta = e.getValue();
-            if (requireBoolean && !FemtoCli.isBooleanType(meta.field.getType())) {
-                continue;
-            }
-
-            String stripped = optName.startsWith("--") ? optName.substring(2) : optName.substring(1);
-            if (stripped.equals(bareName)) {
-                candidates.add(optName);
-            }
-        }
-        return candidates;
-    }
-
     private static String commandName(Object cmd) {
         Command c = cmd.getClass().getAnnotation(Command.class);
         return c != null && !c.name().isBlank()
@@ -574,7 +633,7 @@ public final class FemtoCli {
      * {@code "--version"} explicitly if you need the flag, or avoid naming subcommands
      * {@code "help"} or {@code "version"} when agent mode is used.
      */
-    private static String peekNormalized(Deque<String> tokens, boolean agentMode) {
+    private static String peekNormalized(Tokens tokens, boolean agentMode) {
         if (tokens.isEmpty()) return null;
         String next = tokens.peekFirst();
         if (agentMode) {
@@ -584,27 +643,23 @@ public final class FemtoCli {
         return next;
     }
 
-    private static int checkHelpVersion(Deque<String> tokens, boolean agentMode,
-                                            Object cmd, Object root, PrintStream out,
-                                            List<String> commandPath, CommandConfig commandConfig) {
+    private static int checkHelpVersion(Tokens tokens, Object cmd, Object root, Invocation inv) {
         Command ann = cmd.getClass().getAnnotation(Command.class);
-        if (!commandConfig.effectiveMixinStandardHelpOptions(ann)) return -1;
-        String next = peekNormalized(tokens, agentMode);
+        if (!inv.config.effectiveMixinStandardHelpOptions(ann)) return -1;
+        String next = peekNormalized(tokens, inv.agentMode);
         if (next == null) return -1;
         if ("--help".equals(next) || "-h".equals(next)) {
-            setUsageCtx(commandPath, commandConfig, agentMode);
-            usage(cmd, out);
-            return commandConfig.helpExitCode;
+            usage(cmd, inv, inv.out);
+            return inv.config.helpExitCode;
         }
         if ("--version".equals(next) || "-V".equals(next)) {
-            setUsageCtx(commandPath, commandConfig, agentMode);
-            version(root, out);
+            version(root, inv.config, inv.out);
             return 0;
         }
         return -1;
     }
 
-    private static boolean isHelpOrVersionToken(Deque<String> tokens, boolean agentMode) {
+    private static boolean isHelpOrVersionToken(Tokens tokens, boolean agentMode) {
         String next = peekNormalized(tokens, agentMode);
         return "--help".equals(next) || "-h".equals(next) || "--version".equals(next) || "-V".equals(next);
     }
@@ -613,74 +668,72 @@ public final class FemtoCli {
 
     /**
      * Use {@link Spec#usage()} instead
+     *
+     * <p>When called from within a running command, this prints the usage with the command path and
+     * configuration of that invocation; otherwise it uses the defaults.
      */
     public static void usage(Object cmd, PrintStream out) {
-        UsageContext ctx = USAGE_CONTEXT.get();
-        if (ctx != null) {
+        Invocation inv = CALLBACK_INVOCATION.get();
+        if (inv != null) {
             // Always show the full command path (root + subcommands) in the usage line.
-            usage(cmd, ctx.commandPath, ctx.commandConfig, out, ctx.agentMode);
+            usage(cmd, inv, out);
             return;
         }
-        usage(cmd, List.of(commandName(cmd)), new CommandConfig(), out, false);
+        usage(cmd, List.of(commandName(cmd)), new CommandConfig(), out, false, Set.of());
+    }
+
+    private static void usage(Object cmd, Invocation inv, PrintStream out) {
+        usage(cmd, inv.commandPath, inv.config, out, inv.agentMode, inv.removedCommands);
     }
 
-    static void usage(Object cmd, List<String> commandPath, CommandConfig commandConfig, PrintStream out, boolean agentMode) {
-        HelpRenderer.render(cmd, String.join(agentMode ? "," : " ", commandPath), commandConfig, out, agentMode);
+    static void usage(Object cmd, List<String> commandPath, CommandConfig commandConfig, PrintStream out,
+                      boolean agentMode, Set<Class<?>> removedCommands) {
+        HelpRenderer.render(cmd, String.join(agentMode ? "," : " ", commandPath), commandConfig, out, agentMode,
+                removedCommands);
     }
 
     public static void version(Object root, PrintStream out) {
-        Command c = root.getClass().getAnnotation(Command.class);
-        UsageContext ctx = USAGE_CONTEXT.get();
-        String version = ctx != null ? ctx.commandConfig.effectiveVersion(c) : (c != null ? c.version() : "");
-        out.println(!version.isBlank() ? version : "unknown");
+        Invocation inv = CALLBACK_INVOCATION.get();
+        version(root, inv != null ? inv.config : null, out);
     }
 
-    private static void parseInto(Object cmd, PrintStream out, PrintStream err,
-                                  Deque<String> tokens,
-                                  Map<Class<?>, TypeConverter<?>> converters,
-                                  Set<Field> preParsedFields) throws Exception {
-        parseInto(cmd, out, err, tokens, converters, preParsedFields, false, List.of());
+    private static void version(Object root, CommandConfig commandConfig, PrintStream out) {
+        Command c = root.getClass().getAnnotation(Command.class);
+        String version = commandConfig != null ? commandConfig.effectiveVersion(c) : (c != null ? c.version() : "");
+        out.println(!version.isBlank() ? version : "unknown");
     }
 
-    private static void parseInto(Object cmd, PrintStream out, PrintStream err,
-                                  Deque<String> tokens,
-                                  Map<Class<?>, TypeConverter<?>> converters,
-                                  Set<Field> preParsedFields,
-                                  boolean agentMode,
-                                  List<Object> commandChain) throws Exception {
+    private static void parseInto(Object cmd, Tokens tokens, long[] preParsedOptions,
+                                  Invocation inv, List<Object> commandChain) throws Exception {
         var model = CommandModel.of(cmd);
-        UsageContext ctx = USAGE_CONTEXT.get();
-        if (ctx != null) {
-            injectSpec(model, out, err, ctx.commandPath, ctx.commandConfig, commandChain, ctx.agentMode);
-        } else {
-            injectSpec(model, out, err, List.of(commandName(model.cmd)), new CommandConfig(), commandChain, false);
-        }
-        CommandConfig config = ctx != null ? ctx.commandConfig : new CommandConfig();
+        injectSpec(model, inv, commandChain);
 
-        if (agentMode) {
-            normalizeBareOptionTokens(cmd, tokens, model);
+        if (inv.agentMode) {
+            normalizeBareOptionTokens(cmd, tokens, model, inv.removedCommands);
         }
 
-        List<String> positionals = parseOptions(model, cmd, tokens, converters, config, false, preParsedFields);
+        List<String> positionals = parseOptions(model, cmd, tokens, inv.converters, inv.config, false, preParsedOptions);
 
-        // Bind positionals based on index/arity
-        bindPositionals(cmd, positionals, model.parameters, converters);
+        // Bind positionals based on index/arity; if parsing stopped at the values of a trailing
+        // streaming parameter, that parameter takes them from the remaining tokens
+        bindPositionals(cmd, positionals, tokens.isEmpty() ? null : tokens.values(), model, inv.converters);
 
         // Validate required options
-        validateRequiredOptions(cmd, model.options, model.seenFields, model.userProvidedFields);
+        validateRequiredOptions(cmd, model);
     }
 
     /**
      * token and leaves it in the queue.
      */
-    private static List<String> parseOptions(CommandModel model, Object cmd, Deque<String> tokens,
-                                             Map<Class<?>, TypeConverter<?>> converters,
+    private static List<String> parseOptions(CommandModel model, Object cmd, Tokens tokens,
+                                             Converters converters,
                                              CommandConfig config, boolean stopAtNonOption,
-                                             Set<Field> preParsedFields) throws Exception {
-        Set<Field> seenFields = new HashSet<>(preParsedFields);
-        Set<Field> seenFieldsWithoutValue = new HashSet<>();
-        Map<Field, List<String>> multiValueFields = new HashMap<>();
+                                             long[] preParsedOptions) throws Exception {
+        // option state as bitsets over OptionMeta.ordinal
+        long[] seenOptions = preParsedOptions != null ? preParsedOptions.clone() : Bits.of(model.options.size());
+        long[] optionsWithoutValue = Bits.of(model.options.size());
         List<String> positionals = new ArrayList<>();
+        int streamFrom = stopAtNonOption ? -1 : streamingStart(model);
         boolean acceptOptions = true;
 
         while (!tokens.isEmpty()) {
@@ -710,32 +763,36 @@ public final class FemtoCli {
 
             if (acceptOptions && token.startsWith("-")) {
                 if (stopAtNonOption) tokens.removeFirst();
-                parseOption(model, cmd, token, tokens, seenFields, seenFieldsWithoutValue, multiValueFields, converters, config);
+                parseOption(model, cmd, token, tokens, seenOptions, optionsWithoutValue, converters, config);
             } else if (stopAtNonOption) {
                 break;
+            } else if (positionals.size() == streamFrom) {
+                // the remaining tokens are the values of a trailing streaming parameter, left unread
+                tokens.addFirst(token);
+                break;
             } else {
                 positionals.add(token);
             }
         }
 
         // Apply multi-value fields
-        applyMultiValueFields(model, multiValueFields, converters, preParsedFields);
+        applyMultiValueFields(model, converters, preParsedOptions);
 
-        // Save the explicitly user-provided fields before defaults are applied
-        model.userProvidedFields = new HashSet<>(seenFields);
+        // Save the explicitly user-provided options before defaults are applied
+        model.providedOptions = seenOptions.clone();
 
         // Apply default values for unseen options
-        applyDefaultValues(model, seenFields, seenFieldsWithoutValue, converters);
+        applyDefaultValues(model, seenOptions, optionsWithoutValue, converters);
 
-        // Store seenFields on model for later required-option validation
-        model.seenFields = seenFields;
+        // Store seenOptions on model for later required-option validation
+        model.seenOptions = seenOptions;
 
         return positionals;
     }
 
     private static Object invokeConverterMethod(String spec, Object cmd, String raw, Class<?> targetType, Object methodTarget) throws Exception {
         Class<?> fallbackClass = (methodTarget != null && methodTarget != cmd) ? methodTarget.getClass() : null;
-        Method m = resolveMethod(spec, cmd != null ? cmd.getClass() : null, fallbackClass);
+        Method m = resolveMethodCached(spec, cmd != null ? cmd.getClass() : null, fallbackClass);
         if (m.getParameterCount() != 1 || m.getParameterTypes()[0] != String.class) {
             throw new IllegalStateException("Converter method must take a single String argument: " + spec);
         }
@@ -766,17 +823,17 @@ public final class FemtoCli {
         if (!isStatic && instance == null) {
             throw new IllegalStateException(kind + " method requires a command instance: " + spec);
         }
-        m.setAccessible(true);
-        return m.invoke(receiver, arg);
+        return MethodAccess.invoke(m, receiver, arg);
     }
 
-    private static void runVerifiers(Object cmdForErrors, Object value, Option opt, Parameters param, Object methodTarget) throws UsageEx {
+    private static void runVerifiers(Object cmdForErrors, Object value, Option opt, Parameters param, Converters converters,
+                                     Object methodTarget) throws UsageEx {
         try {
             if (opt != null) {
-                runVerifier(cmdForErrors, value, opt.verifier(), opt.verifierMethod(), methodTarget);
+                runVerifier(cmdForErrors, value, opt.verifier(), opt.verifierMethod(), converters, methodTarget);
             }
             if (param != null) {
-                runVerifier(cmdForErrors, value, param.verifier(), param.verifierMethod(), methodTarget);
+                runVerifier(cmdForErrors, value, param.verifier(), param.verifierMethod(), converters, methodTarget);
             }
         } catch (java.lang.reflect.InvocationTargetException ite) {
             Throwable cause = ite.getCause();
@@ -793,14 +850,14 @@ public final class FemtoCli {
 
     private static void runVerifier(Object cmdForErrors, Object value,
                                     @SuppressWarnings("rawtypes") Class<? extends Verifier> verifierClass,
-                                    String verifierMethod, Object methodTarget) throws Exception {
+                                    String verifierMethod, Converters converters, Object methodTarget) throws Exception {
         if (verifierClass != null && verifierClass != Verifier.NullVerifier.class) {
             //noinspection unchecked
-            verifierClass.getDeclaredConstructor().newInstance().verify(value);
+            converters.instance(verifierClass).verify(value);
         }
         if (!verifierMethod.isBlank()) {
             Class<?> fallbackClass = (methodTarget != null && methodTarget != cmdForErrors) ? methodTarget.getClass() : null;
-            Method m = resolveMethod(verifierMethod, cmdForErrors != null ? cmdForErrors.getClass() : null, fallbackClass);
+            Method m = resolveMethodCached(verifierMethod, cmdForErrors != null ? cmdForErrors.getClass() : null, fallbackClass);
             if (m.getParameterCount() != 1) {
                 throw new IllegalStateException("Verifier method must take a single argument: " + verifierMethod);
             }
@@ -815,11 +872,10 @@ public final class FemtoCli {
         }
     }
 
-    private static void parseOption(CommandModel model, Object cmd, String token, Deque<String> tokens,
-                                    Set<Field> seenFields,
-                                    Set<Field> seenFieldsWithoutValue,
-                                    Map<Field, List<String>> multiValueFields,
-                                    Map<Class<?>, TypeConverter<?>> converters,
+    private static void parseOption(CommandModel model, Object cmd, String token, Tokens tokens,
+                                    long[] seenOptions,
+                                    long[] optionsWithoutValue,
+                                    Converters converters,
                                     CommandConfig config) throws Exception {
         int eqIndex = token.indexOf('=');
         String name = eqIndex >= 0 ? token.substring(0, eqIndex) : token;
@@ -849,7 +905,7 @@ public final class FemtoCli {
             }
             throw new UsageEx(cmd, errorMsg);
         }
-        seenFields.add(optMeta.field);
+        Bits.set(seenOptions, optMeta.ordinal);
 
         Option opt = optMeta.opt;
 
@@ -876,17 +932,17 @@ public final class FemtoCli {
                     }
                 }
                 if (value != null) {
-                    convertVerifyAndSet(cmd, optMeta.target, optMeta.field, value, opt, null, converters);
-                    seenFieldsWithoutValue.remove(optMeta.field);
+                    convertVerifyAndSet(cmd, model.target(optMeta), optMeta.access, value, opt, null, converters);
+                    Bits.clear(optionsWithoutValue, optMeta.ordinal);
                     return;
                 }
-                optMeta.field.set(optMeta.target, true);
+                optMeta.access.set(model.target(optMeta), true);
                 return;
             }
 
             // Optional-value option
             if (value == null && opt != null && "0..1".equals(opt.arity())) {
-                seenFieldsWithoutValue.add(optMeta.field);
+                Bits.set(optionsWithoutValue, optMeta.ordinal);
                 return;
             }
 
@@ -899,9 +955,15 @@ public final class FemtoCli {
             }
         }
 
-        if (type.isArray() || List.class.isAssignableFrom(type)) {
+        if (isMultiValueType(type)) {
             // Handle multi-value options
-            List<String> values = multiValueFields.computeIfAbsent(optMeta.field, k -> new ArrayList<>());
+            if (model.multiValues == null) {
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                List<String>[] multiValues = new List[model.options.size()];
+                model.multiValues = multiValues;
+            }
+            List<String> values = model.multiValues[optMeta.ordinal];
+            if (values == null) values = model.multiValues[optMeta.ordinal] = new ArrayList<>();
             String delimiter = opt != null ? opt.split() : "";
             if (!delimiter.isEmpty()) {
                 // Use Pattern.quote() to treat delimiter as literal string, not regex pattern
@@ -910,61 +972,83 @@ public final class FemtoCli {
                 values.add(value);
             }
         } else {
-            convertVerifyAndSet(cmd, optMeta.target, optMeta.field, value, opt, null, converters);
-            seenFieldsWithoutValue.remove(optMeta.field);
-        }
-    }
-
-    private static void applyMultiValueFields(CommandModel model, Map<Field, List<String>> multiValueFields,
-                                              Map<Class<?>, TypeConverter<?>> converters,
-                                              Set<Field> preParsedFields) throws Exception {
-        for (var entry : multiValueFields.entrySet()) {
-            Field field = entry.getKey();
-            List<String> values = entry.getValue();
-
-            OptionMeta optMeta = model.optionByField.get(field);
-            Option opt = optMeta != null ? optMeta.opt : field.getAnnotation(Option.class);
-            Object target = optMeta != null ? optMeta.target : model.cmd;
-
-            Class<?> type = field.getType();
-
-            if (type.isArray()) {
-                Object converted = convertToArray(values, type.getComponentType(), field.getName(), opt, null, converters, model.cmd, target);
-                if (preParsedFields.contains(field)) {
-                    Object existing = field.get(target);
-                    if (existing != null) {
-                        int existingLength = Array.getLength(existing);
-                        int appendedLength = Array.getLength(converted);
-                        Object merged = Array.newInstance(type.getComponentType(), existingLength + appendedLength);
-                        System.arraycopy(existing, 0, merged, 0, existingLength);
-                        System.arraycopy(converted, 0, merged, existingLength, appendedLength);
-                        converted = merged;
-                    }
-                }
-                field.set(target, converted);
-            } else {
-                List<Object> converted = convertToList(values, resolveListElementType(field), field.getName(), opt, null, converters, model.cmd, target);
-                if (preParsedFields.contains(field)) {
-                    Object existing = field.get(target);
-                    if (existing != null) {
-                        @SuppressWarnings("unchecked")
-                        List<Object> merged = new ArrayList<>((List<Object>) existing);
-                        merged.addAll(converted);
-                        converted = merged;
-                    }
+            convertVerifyAndSet(cmd, model.target(optMeta), optMeta.access, value, opt, null, converters);
+            Bits.clear(optionsWithoutValue, optMeta.ordinal);
+        }
+    }
+
+    private static void applyMultiValueFields(CommandModel model, Converters converters,
+                                              long[] preParsedOptions) throws Exception {
+        List<String>[] multiValues = model.multiValues;
+        if (multiValues == null) return;
+        model.multiValues = null;
+        for (int i = 0; i < multiValues.length; i++) {
+            List<String> values = multiValues[i];
+            if (values == null) continue;
+            OptionMeta optMeta = model.options.get(i);
+            Object target = model.target(optMeta);
+
+            Object converted = convertMultiValue(values, optMeta.field, optMeta.opt, null, converters, model.cmd, target);
+            if (preParsedOptions != null && Bits.get(preParsedOptions, i)) {
+                Object existing = optMeta.access.get(target);
+                if (existing != null) {
+                    converted = appendMultiValue(existing, converted);
                 }
-                field.set(target, converted);
             }
+            optMeta.access.set(target, converted);
+        }
+    }
+
+    /** Converts all values of an array, {@link List} or primitive stream field. */
+    private static Object convertMultiValue(List<String> values, Field field, Option opt, Parameters param,
+                                            Converters converters, Object cmd, Object methodTarget) throws Exception {
+        Class<?> type = field.getType();
+        if (type.isArray()) {
+            return convertToArray(values, type.getComponentType(), field.getName(), opt, param, converters, cmd, methodTarget);
         }
+        if (type == IntStream.class) {
+            return IntStream.of((int[]) convertToArray(values, int.class, field.getName(), opt, param, converters, cmd, methodTarget));
+        }
+        if (type == LongStream.class) {
+            return LongStream.of((long[]) convertToArray(values, long.class, field.getName(), opt, param, converters, cmd, methodTarget));
+        }
+        if (type == DoubleStream.class) {
+            return DoubleStream.of((double[]) convertToArray(values, double.class, field.getName(), opt, param, converters, cmd, methodTarget));
+        }
+        return convertToList(values, resolveListElementType(field), field.getName(), opt, param, converters, cmd, methodTarget);
+    }
+
+    /** Appends values converted by {@link #convertMultiValue} to those already bound by an earlier parse pass. */
+    private static Object appendMultiValue(Object existing, Object appended) {
+        if (existing.getClass().isArray()) {
+            int existingLength = Array.getLength(existing);
+            int appendedLength = Array.getLength(appended);
+            Object merged = Array.newInstance(existing.getClass().getComponentType(), existingLength + appendedLength);
+            System.arraycopy(existing, 0, merged, 0, existingLength);
+            System.arraycopy(appended, 0, merged, existingLength, appendedLength);
+            return merged;
+        }
+        if (existing instanceof IntStream stream) return IntStream.concat(stream, (IntStream) appended);
+        if (existing instanceof LongStream stream) return LongStream.concat(stream, (LongStream) appended);
+        if (existing instanceof DoubleStream stream) return DoubleStream.concat(stream, (DoubleStream) appended);
+        @SuppressWarnings("unchecked")
+        List<Object> merged = new ArrayList<>((List<Object>) existing);
+        merged.addAll((List<?>) appended);
+        return merged;
     }
 
     private static Object convertToArray(List<String> values, Class<?> componentType, String fieldName,
                                          Option opt, Parameters param,
-                                         Map<Class<?>, TypeConverter<?>> converters, Object cmd, Object methodTarget) throws Exception {
+                                         Converters converters, Object cmd, Object methodTarget) throws Exception {
+        if (componentType.isPrimitive() && !converters.containsKey(componentType)
+                && usesBuiltinConversion(opt, param) && !hasVerifier(opt, param)) {
+            Object array = parsePrimitiveArray(values, componentType);
+            if (array != null) return array;
+        }
         Object array = Array.newInstance(componentType, values.size());
         for (int i = 0; i < values.size(); i++) {
             Object converted = convert(values.get(i), componentType, fieldName, opt, param, converters, cmd, methodTarget);
-            runVerifiers(cmd, converted, opt, param, methodTarget);
+            runVerifiers(cmd, converted, opt, param, converters, methodTarget);
             Array.set(array, i, converted);
         }
         return array;
@@ -972,16 +1056,57 @@ public final class FemtoCli {
 
     private static List<Object> convertToList(List<String> values, Class<?> elementType, String fieldName,
                                               Option opt, Parameters param,
-                                              Map<Class<?>, TypeConverter<?>> converters, Object cmd, Object methodTarget) throws Exception {
-        List<Object> list = new ArrayList<>();
+                                              Converters converters, Object cmd, Object methodTarget) throws Exception {
+        List<Object> list = new ArrayList<>(values.size());
         for (String v : values) {
             Object converted = convert(v, elementType, fieldName, opt, param, converters, cmd, methodTarget);
-            runVerifiers(cmd, converted, opt, param, methodTarget);
+            runVerifiers(cmd, converted, opt, param, converters, methodTarget);
             list.add(converted);
         }
         return list;
     }
 
+    /**
+     * Parses {@code int}, {@code long} and {@code double} values directly into a primitive array,
+     * without boxing each value and setting it reflectively.
+     *
+     * @return the array, or null for other component types or if a value is invalid,
+     *         in which case the caller's general path reports the error
+     */
+    private static Object parsePrimitiveArray(List<String> values, Class<?> componentType) {
+        int size = values.size();
+        try {
+            if (componentType == int.class) {
+                int[] array = new int[size];
+                for (int i = 0; i < size; i++) array[i] = Integer.parseInt(values.get(i));
+                return array;
+            }
+            if (componentType == long.class) {
+                long[] array = new long[size];
+                for (int i = 0; i < size; i++) array[i] = Long.parseLong(values.get(i));
+                return array;
+            }
+            if (componentType == double.class) {
+                double[] array = new double[size];
+                for (int i = 0; i < size; i++) array[i] = Double.parseDouble(values.get(i));
+                return array;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static boolean usesBuiltinConversion(Option opt, Parameters param) {
+        return (opt == null || (opt.converterMethod().isBlank() && opt.converter() == TypeConverter.NullTypeConverter.class))
+                && (param == null || (param.converterMethod().isBlank() && param.converter() == TypeConverter.NullTypeConverter.class));
+    }
+
+    private static boolean hasVerifier(Option opt, Parameters param) {
+        return (opt != null && (opt.verifier() != Verifier.NullVerifier.class || !opt.verifierMethod().isBlank()))
+                || (param != null && (param.verifier() != Verifier.NullVerifier.class || !param.verifierMethod().isBlank()));
+    }
+
     private static Class<?> resolveListElementType(Field field) {
         Type genericType = field.getGenericType();
         if (genericType instanceof ParameterizedType parameterizedType) {
@@ -994,79 +1119,65 @@ public final class FemtoCli {
     }
 
     private static void applyDefaultValues(CommandModel model,
-                                           Set<Field> seenFields,
-                                           Set<Field> seenFieldsWithoutValue,
-                                           Map<Class<?>, TypeConverter<?>> converters) throws Exception {
-        for (OptionMeta optMeta : model.options) {
-            Field field = optMeta.field;
-            Option opt = optMeta.opt;
-
-            boolean shouldApply = !opt.defaultValue().equals(NO_DEFAULT_VALUE) && (!seenFields.contains(field) || seenFieldsWithoutValue.contains(field));
-
-            if (shouldApply) {
+                                           long[] seenOptions,
+                                           long[] optionsWithoutValue,
+                                           Converters converters) throws Exception {
+        long[] defaultOptions = model.template.defaultOptions;
+        for (int word = 0; word < defaultOptions.length; word++) {
+            // options with a default that were not given, or given without a value
+            long pending = defaultOptions[word] & (~seenOptions[word] | optionsWithoutValue[word]);
+            for (; pending != 0; pending &= pending - 1) {
+                OptionMeta optMeta = model.options.get((word << 6) + Long.numberOfTrailingZeros(pending));
+                Field field = optMeta.field;
+                Option opt = optMeta.opt;
+                Object target = model.target(optMeta);
                 Class<?> type = field.getType();
                 String defaultValue = opt.defaultValue();
-                Object converted;
-                if (type.isArray()) {
-                    String splitDelim = opt != null ? opt.split() : "";
-                    // Use Pattern.quote() to treat delimiter as literal string, not regex pattern  
-                    List<String> splitValues = splitDelim.isEmpty() ? List.of(defaultValue) : List.of(defaultValue.split(java.util.regex.Pattern.quote(splitDelim), -1));
-                    converted = convertToArray(splitValues, type.getComponentType(), field.getName(), opt, null, converters, model.cmd, optMeta.target);
-                } else if (List.class.isAssignableFrom(type)) {
-                    String splitDelim2 = opt != null ? opt.split() : "";
-                    // Use Pattern.quote() to treat delimiter as literal string, not regex pattern
-                    List<String> splitValues2 = splitDelim2.isEmpty() ? List.of(defaultValue) : List.of(defaultValue.split(java.util.regex.Pattern.quote(splitDelim2), -1));
-                    converted = convertToList(splitValues2, resolveListElementType(field), field.getName(), opt, null, converters, model.cmd, optMeta.target);
+                // most defaults are converted and verified once, when the model is built
+                Object converted = cachedDefault(optMeta, converters);
+                if (converted != UNCACHED) {
+                    // nothing to convert
+                } else if (isMultiValueType(type)) {
+                    // convertMultiValue already runs verifiers for each value
+                    converted = convertMultiValue(splitDefault(opt), field, opt, null, converters, model.cmd, target);
+                } else if (type == Supplier.class) {
+                    converted = lazyValue(defaultValue, field, opt, null, converters, model.cmd, target);
                 } else {
-                    converted = convert(defaultValue, type, field.getName(), opt, null, converters, model.cmd, optMeta.target);
-                }
-                // convertToArray/convertToList already run verifiers for array/list types.
-                // For scalar types, run verifiers explicitly to be consistent.
-                if (!type.isArray() && !List.class.isAssignableFrom(type)) {
-                    runVerifiers(model.cmd, converted, opt, null, optMeta.target);
+                    converted = convert(defaultValue, type, field.getName(), opt, null, converters, model.cmd, target);
+                    runVerifiers(model.cmd, converted, opt, null, converters, target);
                 }
-                optMeta.field.set(optMeta.target, converted);
-                seenFields.add(field);
+                optMeta.access.set(target, converted);
+                Bits.set(seenOptions, optMeta.ordinal);
             }
         }
     }
 
-    private static void validateRequiredOptions(Object cmd, List<OptionMeta> options,
-                                                Set<Field> seenFields,
-                                                Set<Field> userProvidedFields) throws UsageEx {
-        Map<String, OptionMeta> nameToMeta = new HashMap<>();
-        for (OptionMeta optMeta : options) {
-            Option opt = optMeta.opt;
-            if (opt.required() && !seenFields.contains(optMeta.field)) {
-                throw new UsageEx(cmd, "Missing required option: " + preferredOptionName(opt));
-            }
-            if (opt != null) {
-                for (String name : opt.names()) nameToMeta.put(name, optMeta);
-            }
-        }
-        // Validate that all prevents references point to known options
-        for (OptionMeta optMeta : options) {
-            if (optMeta.opt == null) continue;
-            String[] preventsNames = optMeta.opt.prevents();
-            if (preventsNames == null || preventsNames.length == 0) continue;
-            for (String preventedName : preventsNames) {
-                if (!nameToMeta.containsKey(preventedName)) {
-                    throw new IllegalArgumentException(
-                        "Option " + preferredOptionName(optMeta.opt) + " declares prevents={\"" + preventedName + "\"} but no such option exists");
-                }
-            }
-        }
-        // Check prevents constraints: only consider user-provided options, skip self-references
-        for (OptionMeta optMeta : options) {
-            if (!userProvidedFields.contains(optMeta.field) || optMeta.opt == null) continue;
-            String[] preventsNames = optMeta.opt.prevents();
-            if (preventsNames == null) continue;
-            for (String preventedName : preventsNames) {
-                OptionMeta preventedMeta = nameToMeta.get(preventedName);
-                if (preventedMeta != null && preventedMeta.field != optMeta.field
-                        && userProvidedFields.contains(preventedMeta.field)) {
+    /**
+     * Checks the required options and the {@link Option#prevents()} constraints between the options given by
+     * the user, using the masks precompiled in {@link CommandModel.Template}.
+     */
+    private static void validateRequiredOptions(Object cmd, CommandModel model) throws UsageEx {
+        CommandModel.Template template = model.template;
+        int missing = Bits.firstMissing(template.requiredOptions, model.seenOptions);
+        if (missing >= 0) {
+            throw new UsageEx(cmd, "Missing required option: " + preferredOptionName(model.options.get(missing).opt));
+        }
+        if (template.invalidPrevents != null) {
+            throw new IllegalArgumentException(template.invalidPrevents);
+        }
+        long[][] preventedOptions = template.preventedOptions;
+        if (preventedOptions == null) return;
+        // Check prevents constraints: only consider user-provided options, self-references are not in the masks
+        long[] provided = model.providedOptions;
+        for (int i = Bits.next(provided, 0); i >= 0; i = Bits.next(provided, i + 1)) {
+            if (preventedOptions[i] == null || !Bits.intersects(preventedOptions[i], provided)) continue;
+            Option opt = model.options.get(i).opt;
+            // report the first conflicting name in declaration order
+            for (String preventedName : opt.prevents()) {
+                OptionMeta preventedMeta = model.optionsByName.get(preventedName);
+                if (preventedMeta != null && preventedMeta.ordinal != i && Bits.get(provided, preventedMeta.ordinal)) {
                     throw new UsageEx(cmd,
-                            "Options " + preferredOptionName(optMeta.opt) + " and " +
+                            "Options " + preferredOptionName(opt) + " and " +
                             preferredOptionName(preventedMeta.opt) +
                             " cannot be used together");
                 }
@@ -1074,7 +1185,7 @@ public final class FemtoCli {
         }
     }
 
-    private static String preferredOptionName(Option opt) {
+    static String preferredOptionName(Option opt) {
         if (opt == null || opt.names().length == 0) return "<option>";
         for (String n : opt.names()) if (n.startsWith("--")) return n;
         return opt.names()[0];
@@ -1113,14 +1224,17 @@ public final class FemtoCli {
 
     static final class ParamInfo {
         final Field field;
-        final Object target;
+        final FieldAccess access;
+        /** Index into {@link CommandModel#holders}. */
+        final int holder;
         final Parameters param;
         final int[] indexRange;
         final int[] arityRange;
 
-        ParamInfo(Field field, Object target, Parameters param, int[] indexRange, int[] arityRange) {
+        ParamInfo(Field field, int holder, Parameters param, int[] indexRange, int[] arityRange) {
             this.field = field;
-            this.target = target;
+            this.access = FieldAccess.of(field);
+            this.holder = holder;
             this.param = param;
             this.indexRange = indexRange;
             this.arityRange = arityRange;
@@ -1129,18 +1243,110 @@ public final class FemtoCli {
 
     static final class OptionMeta {
         final Field field;
-        final Object target;
+        final FieldAccess access;
+        /** Index into {@link CommandModel#holders}. */
+        final int holder;
         final Option opt;
+        /**
+         * Index in {@link CommandModel#options} for the {@link Bits} of the parse state, or -1 while the
+         * {@link CommandModel.Template} still collects the options.
+         */
+        final int ordinal;
+        /** The converted and verified {@link Option#defaultValue()}, or {@link #UNCACHED}, see {@link #precomputeDefault}. */
+        final Object defaultValue;
 
-        OptionMeta(Field field, Object target, Option opt) {
+        OptionMeta(Field field, int holder, Option opt) {
             this.field = field;
-            this.target = target;
+            this.access = FieldAccess.of(field);
+            this.holder = holder;
             this.opt = opt;
+            this.ordinal = -1;
+            this.defaultValue = precomputeDefault(field, opt);
+        }
+
+        /** {@code meta} at position {@code ordinal} of the final option list. */
+        OptionMeta(OptionMeta meta, int ordinal) {
+            this.field = meta.field;
+            this.access = meta.access;
+            this.holder = meta.holder;
+            this.opt = meta.opt;
+            this.ordinal = ordinal;
+            this.defaultValue = meta.defaultValue;
+        }
+    }
+
+    /** Marks an {@link OptionMeta#defaultValue} that has to be converted on every parse. */
+    static final Object UNCACHED = new Object();
+
+    /**
+     * Converts and verifies the default value of an option once, when the command model is built, if the result
+     * does not depend on the command instance and is immutable (or an array or list of immutable values, which is
+     * copied for each parse): strings, primitives and their wrappers, {@link Path}, {@link Duration} and enums
+     * with the built-in conversion and without a verifier method. Anything else, including defaults that fail
+     * conversion or verification, is left to {@link #applyDefaultValues} to handle (and report) on every parse.
+     */
+    private static Object precomputeDefault(Field field, Option opt) {
+        if (opt.defaultValue().equals(NO_DEFAULT_VALUE) || !usesBuiltinConversion(opt, null)
+                || !opt.verifierMethod().isBlank()) {
+            return UNCACHED;
+        }
+        Class<?> type = field.getType();
+        if (!isImmutableValueType(defaultValueType(field))) return UNCACHED;
+        try {
+            if (type.isArray() || type == List.class) {
+                return convertMultiValue(splitDefault(opt), field, opt, null, Converters.NONE, null, null);
+            }
+            Object converted = convert(opt.defaultValue(), type, field.getName(), opt, null, Converters.NONE, null, null);
+            runVerifiers(null, converted, opt, null, Converters.NONE, null);
+            return converted;
+        } catch (Exception e) {
+            return UNCACHED;
+        }
+    }
+
+    private static boolean isImmutableValueType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type == String.class || type == Path.class || type == Duration.class
+                || type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                || type == Short.class || type == Byte.class || type == Character.class || type == Boolean.class;
+    }
+
+    /** The cached default value of the option, copied if it is an array or list, or {@link #UNCACHED}. */
+    private static Object cachedDefault(OptionMeta optMeta, Converters converters) {
+        Object value = optMeta.defaultValue;
+        if (value == UNCACHED || !converters.isEmpty() && converters.containsKey(defaultValueType(optMeta.field))) {
+            // a converter registered for this invocation takes precedence over the built-in one
+            return UNCACHED;
         }
+        if (value instanceof List<?> list) return new ArrayList<>(list);
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    /** The type each (split) default value is converted to. */
+    private static Class<?> defaultValueType(Field field) {
+        Class<?> type = field.getType();
+        return type.isArray() ? type.getComponentType() : type == List.class ? resolveListElementType(field) : type;
+    }
+
+    private static List<String> splitDefault(Option opt) {
+        String defaultValue = opt.defaultValue();
+        String splitDelim = opt.split();
+        // Use Pattern.quote() to treat delimiter as literal string, not regex pattern
+        return splitDelim.isEmpty() ? List.of(defaultValue) : List.of(defaultValue.split(java.util.regex.Pattern.quote(splitDelim), -1));
     }
 
-    private static void bindPositionals(Object cmd, List<String> positionals, List<ParamInfo> paramInfos,
-                                        Map<Class<?>, TypeConverter<?>> converters) throws Exception {
+    /**
+     * Binds {@code positionals} to the parameters. {@code tail}, if not null, holds the values of the trailing
+     * streaming parameter (see {@link #streamingStart(CommandModel)}) after {@code positionals}.
+     */
+    private static void bindPositionals(Object cmd, List<String> positionals, Iterator<String> tail, CommandModel model,
+                                        Converters converters) throws Exception {
+        List<ParamInfo> paramInfos = model.parameters;
         if (paramInfos.isEmpty()) {
             if (!positionals.isEmpty()) {
                 throw new UsageEx(cmd, "Unexpected parameter: " + positionals.get(0));
@@ -1172,7 +1378,12 @@ public final class FemtoCli {
                 while (startIdx < consumed.length && consumed[startIdx]) startIdx++;
             }
 
-            if (isVarargs) {
+            if (tail != null && isVarargs && startIdx == positionals.size() && isStreamingType(field.getType())) {
+                if (arity[0] > 0 && !tail.hasNext()) {
+                    throw new UsageEx(cmd, "Missing required parameter: " + positionalLabel(paramInfo));
+                }
+                bindStreaming(tail, paramInfo, converters, cmd, model.target(paramInfo));
+            } else if (isVarargs) {
                 // Determine end bound from the index range annotation.
                 // For varargs fields, a single index like "0" means "start from 0, consume all"
                 // (only an explicit range like "0..2" limits the end).
@@ -1195,13 +1406,13 @@ public final class FemtoCli {
                     throw new UsageEx(cmd, "Missing required parameter: " + positionalLabel(paramInfo));
                 }
 
-                Object target = paramInfo.target;
-                if (field.getType().isArray()) {
-                    field.set(target, convertToArray(values, field.getType().getComponentType(), field.getName(), null, paramInfo.param, converters, cmd, target));
-                } else if (List.class.isAssignableFrom(field.getType())) {
-                    field.set(target, convertToList(values, resolveListElementType(field), field.getName(), null, paramInfo.param, converters, cmd, target));
+                Object target = model.target(paramInfo);
+                if (isStreamingType(field.getType())) {
+                    bindStreaming(LazyValues.releasing(values), paramInfo, converters, cmd, target);
+                } else if (isMultiValueType(field.getType())) {
+                    paramInfo.access.set(target, convertMultiValue(values, field, null, paramInfo.param, converters, cmd, target));
                 } else if (!values.isEmpty()) {
-                    convertVerifyAndSet(cmd, target, field, values.get(0), null, paramInfo.param, converters);
+                    convertVerifyAndSet(cmd, target, paramInfo.access, values.get(0), null, paramInfo.param, converters);
                 }
                 for (int i = actualStart; i < actualStart + values.size(); i++) consumed[i] = true;
             } else {
@@ -1214,12 +1425,12 @@ public final class FemtoCli {
                 boolean isOptional = arity[0] == 0 || "0..1".equals(param.arity());
 
                 if (startIdx < positionals.size()) {
-                    convertVerifyAndSet(cmd, paramInfo.target, field, positionals.get(startIdx), null, param, converters);
+                    convertVerifyAndSet(cmd, model.target(paramInfo), paramInfo.access, positionals.get(startIdx), null, param, converters);
                     consumed[startIdx] = true;
                 } else if (!isOptional && param.defaultValue().equals(NO_DEFAULT_VALUE)) {
                     throw new UsageEx(cmd, "Missing required parameter: " + positionalLabel(paramInfo));
                 } else if (!param.defaultValue().equals(NO_DEFAULT_VALUE)) {
-                    convertVerifyAndSet(cmd, paramInfo.target, field, param.defaultValue(), null, param, converters);
+                    convertVerifyAndSet(cmd, model.target(paramInfo), paramInfo.access, param.defaultValue(), null, param, converters);
                 }
             }
         }
@@ -1353,25 +1564,19 @@ public final class FemtoCli {
     }
 
     public static boolean hasSubcommands(Class<?> cmdClass) {
-        Command ann = cmdClass.getAnnotation(Command.class);
-        if (ann != null) {
-            for (Class<?> sub : ann.subcommands()) {
-                if (!isCommandRemoved(sub)) return true;
-            }
-        }
-        // Also check for @Command methods
-        for (Method m : collectSubcommandMethods(cmdClass)) {
-            if (m.getAnnotation(Command.class) != null) return true;
-        }
-        return false;
+        return hasSubcommands(cmdClass, Set.of());
+    }
+
+    static boolean hasSubcommands(Class<?> cmdClass, Set<Class<?>> removedCommands) {
+        return !Subcommands.of(cmdClass).isEmpty(removedCommands);
     }
 
     /**
      * Consume leading non-option tokens that are not subcommand names,
      * up to the number of fixed (non-varargs) positional parameters defined on the command.
      */
-    private static List<String> consumeLeadingPositionalTokens(Object cmd, Deque<String> tokens,
-                                                               CommandModel model, boolean agentMode) {
+    private static List<String> consumeLeadingPositionalTokens(Object cmd, Tokens tokens,
+                                                               CommandModel model, Invocation inv) throws UsageEx {
         List<String> consumed = new ArrayList<>();
         int fixedCount = 0;
         for (ParamInfo p : model.parameters) {
@@ -1382,9 +1587,9 @@ public final class FemtoCli {
         for (int i = 0; i < fixedCount && !tokens.isEmpty(); i++) {
             String tok = tokens.peekFirst();
             if (tok.startsWith("-")) break;
-            String normalized = agentMode && tok.length() > 1 && tok.startsWith("'") && tok.endsWith("'")
+            String normalized = inv.agentMode && tok.length() > 1 && tok.startsWith("'") && tok.endsWith("'")
                     ? tok.substring(1, tok.length() - 1) : tok;
-            if (findSubcommand(cmd.getClass(), normalized) != null) break;
+            if (findSubcommand(cmd, normalized, inv.removedCommands) != null) break;
             if (findSubcommandMethod(cmd.getClass(), normalized) != null) break;
             if ("help".equals(normalized) || "version".equals(normalized)) break;
             tokens.removeFirst();
@@ -1393,57 +1598,12 @@ public final class FemtoCli {
         return consumed;
     }
 
-    private static Class<?> findSubcommand(Class<?> cmdClass, String name) {
-        Command ann = cmdClass.getAnnotation(Command.class);
-        if (ann == null) return null;
-        for (Class<?> sub : ann.subcommands()) {
-            if (isCommandRemoved(sub)) continue;
-            Command s = sub.getAnnotation(Command.class);
-            if (s != null && s.name().equals(name)) return sub;
-        }
-        return null;
+    private static Class<?> findSubcommand(Object cmd, String name, Set<Class<?>> removedCommands) throws UsageEx {
+        return Subcommands.of(cmd.getClass()).findClass(cmd, name, removedCommands);
     }
 
     private static Method findSubcommandMethod(Class<?> cmdClass, String name) {
-        for (Method m : collectSubcommandMethods(cmdClass)) {
-            Command ann = m.getAnnotation(Command.class);
-            if (ann != null && ann.name().equals(name)) return m;
-        }
-        return null;
-    }
-
-    static List<Method> collectSubcommandMethods(Class<?> cmdClass) {
-        List<Method> methods = new ArrayList<>();
-        Set<String> seenSignatures = new HashSet<>();
-
-        for (Class<?> c = cmdClass; c != null && c != Object.class; c = c.getSuperclass()) {
-            for (Method m : c.getDeclaredMethods()) {
-                String signature = methodSignature(m);
-                if (!seenSignatures.add(signature)) {
-                    continue;
-                }
-
-                if (c != cmdClass && java.lang.reflect.Modifier.isPrivate(m.getModifiers())) {
-                    continue;
-                }
-
-                if (m.getAnnotation(Command.class) != null) {
-                    methods.add(m);
-                }
-            }
-        }
-
-        return methods;
-    }
-
-    private static String methodSignature(Method m) {
-        StringBuilder sb = new StringBuilder(m.getName()).append('(');
-        Class<?>[] types = m.getParameterTypes();
-        for (int i = 0; i < types.length; i++) {
-            if (i > 0) sb.append(',');
-            sb.append(types[i].getName());
-        }
-        return sb.append(')').toString();
+        return Subcommands.of(cmdClass).findMethod(name);
     }
 
     static List<Field> allFields(Class<?> type) {
@@ -1454,39 +1614,54 @@ public final class FemtoCli {
         return fields;
     }
 
-    private static final class UsageContext {
-        final List<String> commandPath;
-        final CommandConfig commandConfig;
+    /**
+     * Routing state of a single run or parse call, passed explicitly through parsing and help rendering.
+     * {@code commandPath} grows as subcommands are selected.
+     */
+    private static final class Invocation {
+        final PrintStream out;
+        final PrintStream err;
+        final Converters converters;
+        final CommandConfig config;
         final boolean agentMode;
-
-        UsageContext(List<String> commandPath, CommandConfig commandConfig, boolean agentMode) {
-            this.commandPath = commandPath;
-            this.commandConfig = commandConfig;
+        final Set<Class<?>> removedCommands;
+        final List<String> commandPath = new ArrayList<>();
+
+        Invocation(PrintStream out, PrintStream err, Converters converters,
+                   CommandConfig config, boolean agentMode, Set<Class<?>> removedCommands) {
+            this.out = out;
+            this.err = err;
+            this.converters = converters;
+            this.config = config;
             this.agentMode = agentMode;
+            this.removedCommands = removedCommands;
         }
     }
 
-    private static final ThreadLocal<UsageContext> USAGE_CONTEXT = new ThreadLocal<>();
-
-    static final ThreadLocal<Set<Class<?>>> REMOVED_COMMANDS = new ThreadLocal<>();
-
-    /** Returns the current set of removed command classes (never null). */
-    static boolean isCommandRemoved(Class<?> commandClass) {
-        Set<Class<?>> removed = REMOVED_COMMANDS.get();
-        return removed != null && removed.contains(commandClass);
-    }
+    /**
+     * The invocation whose command is currently running on this thread. Only read by the static
+     * {@link #usage(Object, PrintStream)} and {@link #version(Object, PrintStream)} methods that
+     * commands may call without a {@link Spec}; parsing and routing never use it.
+     */
+    private static final ThreadLocal<Invocation> CALLBACK_INVOCATION = new ThreadLocal<>();
 
-    private static void setUsageCtx(List<String> commandPath, CommandConfig commandConfig, boolean agentMode) {
-        USAGE_CONTEXT.set(new UsageContext(List.copyOf(commandPath), commandConfig, agentMode));
+    /** Invokes the command's {@code run}/{@code call} (or subcommand method) on behalf of {@code inv}. */
+    private static int runCallback(Object cmd, Invocation inv) throws Exception {
+        Invocation previous = CALLBACK_INVOCATION.get();
+        CALLBACK_INVOCATION.set(inv);
+        try {
+            return invoke(cmd);
+        } finally {
+            if (previous == null) CALLBACK_INVOCATION.remove(); else CALLBACK_INVOCATION.set(previous);
+        }
     }
 
-
     private static Object convert(String value,
                                   Class<?> type,
                                   String fieldName,
                                   Option opt,
                                   Parameters param,
-                                  Map<Class<?>, TypeConverter<?>> converters,
+                                  Converters converters,
                                   Object cmdForErrors,
                                   Object methodTarget) throws UsageEx {
         try {
@@ -1502,13 +1677,13 @@ public final class FemtoCli {
 
             // 1) Per-option converter class
             if (opt != null && opt.converter() != TypeConverter.NullTypeConverter.class) {
-                TypeConverter<?> perOpt = opt.converter().getDeclaredConstructor().newInstance();
+                TypeConverter<?> perOpt = converters.instance(opt.converter());
                 return perOpt.convert(value);
             }
 
             // 1b) Per-parameter converter class
             if (param != null && param.converter() != TypeConverter.NullTypeConverter.class) {
-                TypeConverter<?> perParam = param.converter().getDeclaredConstructor().newInstance();
+                TypeConverter<?> perParam = converters.instance(param.converter());
                 return perParam.convert(value);
             }
 
@@ -1588,38 +1763,123 @@ public final class FemtoCli {
      * Injects a {@link Spec} instance into any unset {@code Spec}-typed field on the
      * command object and its {@code @Mixin} instances.
      */
-    private static void injectSpec(CommandModel model,
-                                   PrintStream out, PrintStream err,
-                                   List<String> commandPath, CommandConfig commandConfig,
-                                   List<Object> commandChain, boolean agentMode) throws Exception {
-        Spec spec = new Spec(model.cmd, out, err, commandPath, commandConfig, commandChain, agentMode);
-        for (Field f : allFields(model.cmd.getClass())) {
-            if (Spec.class.isAssignableFrom(f.getType())) {
-                f.setAccessible(true);
-                if (f.get(model.cmd) == null) {
-                    f.set(model.cmd, spec);
+    private static void injectSpec(CommandModel model, Invocation inv, List<Object> commandChain) throws Exception {
+        Spec spec = new Spec(model.cmd, inv.out, inv.err, inv.commandPath, inv.config, commandChain, inv.agentMode,
+                inv.removedCommands);
+        // Command fields first, then @Mixin instances
+        FieldAccess[][] specFields = model.template.specFields;
+        for (int h = 0; h < specFields.length; h++) {
+            Object holder = model.holders[h];
+            for (FieldAccess f : specFields[h]) {
+                if (f.get(holder) == null) {
+                    f.set(holder, spec);
                 }
             }
         }
-        // Also inject Spec into @Mixin instances
-        for (Field mf : allFields(model.cmd.getClass())) {
-            if (mf.getAnnotation(me.bechberger.femtocli.annotations.Mixin.class) != null) {
-                mf.setAccessible(true);
-                Object mixin = mf.get(model.cmd);
-                if (mixin != null) {
-                    for (Field sf : allFields(mixin.getClass())) {
-                        if (Spec.class.isAssignableFrom(sf.getType())) {
-                            sf.setAccessible(true);
-                            if (sf.get(mixin) == null) {
-                                sf.set(mixin, spec);
-                            }
-                        }
-                    }
+    }
+
+    /**
+     * Shared instances of converter and verifier classes, created on first use.
+     * Classes annotated with {@link Stateful} are instantiated per run instead, see {@link Converters}.
+     */
+    private static final ClassValue<Object> SHARED_INSTANCES = new ClassValue<>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return newInstance(type);
+        }
+    };
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new InstantiationFailure(e);
+        }
+    }
+
+    /** Carries a checked constructor failure out of {@link #SHARED_INSTANCES} and {@link Converters#instance}. */
+    private static final class InstantiationFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InstantiationFailure(ReflectiveOperationException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * The converters of a single run or parse call: those registered for it, and the instances of
+     * {@link Stateful} converter and verifier classes, which live as long as the run's values are converted.
+     */
+    private static final class Converters {
+        /** For conversions that belong to no run, like cached default values; creates stateful instances per call. */
+        static final Converters NONE = new Converters(Map.of(), null);
+
+        private final Map<Class<?>, TypeConverter<?>> registered;
+        /** Null for {@link #NONE}; values may be converted lazily from other threads. */
+        private final Map<Class<?>, Object> stateful;
+
+        Converters(Map<Class<?>, TypeConverter<?>> registered) {
+            this(registered, new ConcurrentHashMap<>());
+        }
+
+        private Converters(Map<Class<?>, TypeConverter<?>> registered, Map<Class<?>, Object> stateful) {
+            this.registered = registered;
+            this.stateful = stateful;
+        }
+
+        TypeConverter<?> get(Class<?> type) {
+            return registered.get(type);
+        }
+
+        boolean containsKey(Class<?> type) {
+            return registered.containsKey(type);
+        }
+
+        boolean isEmpty() {
+            return registered.isEmpty();
+        }
+
+        /** The instance of a converter or verifier class: shared by all runs, or per run if it is {@link Stateful}. */
+        <T> T instance(Class<? extends T> type) throws ReflectiveOperationException {
+            try {
+                if (!type.isAnnotationPresent(Stateful.class)) {
+                    return type.cast(SHARED_INSTANCES.get(type));
+                }
+                if (stateful == null) {
+                    return type.getDeclaredConstructor().newInstance();
                 }
+                return type.cast(stateful.computeIfAbsent(type, FemtoCli::newInstance));
+            } catch (InstantiationFailure e) {
+                throw (ReflectiveOperationException) e.getCause();
             }
         }
     }
 
+    private record MethodKey(String spec, Class<?> fallbackClass) {}
+
+    /** Successfully resolved converter/verifier method specs, per default class. */
+    private static final ClassValue<Map<MethodKey, Method>> RESOLVED_METHODS = new ClassValue<>() {
+        @Override
+        protected Map<MethodKey, Method> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /** {@link #resolveMethod} with the result cached per (default class, spec, fallback class). */
+    private static Method resolveMethodCached(String spec, Class<?> defaultClass, Class<?> fallbackClass) throws ClassNotFoundException, NoSuchMethodException {
+        if (defaultClass == null) {
+            return resolveMethod(spec, null, fallbackClass);
+        }
+        Map<MethodKey, Method> cache = RESOLVED_METHODS.get(defaultClass);
+        MethodKey key = new MethodKey(spec, fallbackClass);
+        Method m = cache.get(key);
+        if (m == null) {
+            m = resolveMethod(spec, defaultClass, fallbackClass);
+            cache.put(key, m);
+        }
+        return m;
+    }
+
     private static Method resolveMethod(String spec, Class<?> defaultClass, Class<?> fallbackClass) throws ClassNotFoundException, NoSuchMethodException {
         int hash = spec.indexOf('#');
         String classPart = hash >= 0 ? spec.substring(0, hash) : null;
@@ -1707,28 +1967,131 @@ public final class FemtoCli {
 
     /** Returns true if the parameter field accepts multiple / varargs values. */
     static boolean isVarargsParam(ParamInfo p) {
-        return List.class.isAssignableFrom(p.field.getType())
-                || p.field.getType().isArray();
+        return isMultiValueType(p.field.getType()) || isStreamingType(p.field.getType());
+    }
+
+    /** {@link Consumer}, {@link Iterator} and {@link Stream} parameters take their values one at a time. */
+    static boolean isStreamingType(Class<?> type) {
+        return type == Consumer.class || type == Iterator.class || type == Stream.class;
+    }
+
+    /**
+     * The position of the first value of the trailing streaming parameter, or -1 if there is none. Such a
+     * parameter comes after all others, takes any number of values and at most one is required, so once the
+     * collected positionals reach it, all remaining tokens are its values and parsing can stop there: they are
+     * then read (e.g. from an argument file) only when the command consumes them.
+     */
+    private static int streamingStart(CommandModel model) {
+        List<ParamInfo> params = model.parameters;
+        if (params.isEmpty()) return -1;
+        ParamInfo last = params.get(params.size() - 1);
+        if (!isStreamingType(last.field.getType())
+                || (last.indexRange[1] >= 0 && last.indexRange[1] != last.indexRange[0])
+                || (last.arityRange[0] != -2 && (last.arityRange[0] > 1 || last.arityRange[1] != -1))) {
+            return -1;
+        }
+        int others = params.size() - 1;
+        int start = last.indexRange[0] >= 0 ? last.indexRange[0] : others;
+        for (int i = 0; i < others; i++) {
+            ParamInfo p = params.get(i);
+            if (isVarargsParam(p) || p.indexRange[0] >= start || (p.indexRange[0] < 0 && start != others)) return -1;
+        }
+        return start;
+    }
+
+    /**
+     * Passes the values of a streaming parameter on one at a time: to the {@link Consumer} the field holds,
+     * right away, or through an {@link Iterator} or {@link Stream} that converts and verifies each value
+     * when the command consumes it.
+     */
+    private static void bindStreaming(Iterator<String> values, ParamInfo paramInfo, Converters converters,
+                                      Object cmd, Object target) throws Exception {
+        Field field = paramInfo.field;
+        Class<?> elementType = resolveElementType(field);
+        LazyValues.Conversion conversion = raw -> {
+            Object converted = convert(raw, elementType, field.getName(), null, paramInfo.param, converters, cmd, target);
+            runVerifiers(cmd, converted, null, paramInfo.param, converters, target);
+            return converted;
+        };
+        LazyValues lazy = new LazyValues(values, conversion);
+        if (field.getType() == Consumer.class) {
+            @SuppressWarnings("unchecked")
+            Consumer<Object> consumer = (Consumer<Object>) paramInfo.access.get(target);
+            if (consumer == null) {
+                throw new IllegalStateException("@Parameters field of type Consumer must be initialized: " + field);
+            }
+            lazy.forEachRemaining(consumer);
+            return;
+        }
+        paramInfo.access.set(target, field.getType() == Iterator.class ? lazy : lazy.stream());
+    }
+
+    /**
+     * The {@code T} of {@code Consumer<? super T>}, {@code Iterator<? extends T>}, {@code Stream<T>}
+     * or {@code Supplier<T>}, {@link String} by default.
+     */
+    private static Class<?> resolveElementType(Field field) {
+        if (field.getGenericType() instanceof ParameterizedType parameterizedType) {
+            Type argument = parameterizedType.getActualTypeArguments()[0];
+            if (argument instanceof WildcardType wildcard) {
+                Type[] bounds = wildcard.getLowerBounds().length > 0 ? wildcard.getLowerBounds() : wildcard.getUpperBounds();
+                argument = bounds[0];
+            }
+            if (argument instanceof Class<?> elementType) {
+                return elementType == Object.class ? String.class : elementType;
+            }
+        }
+        return String.class;
+    }
+
+    /** The type a raw value of the field is converted to: {@code T} for {@code Supplier<T>}, otherwise the field type. */
+    static Class<?> valueType(Field field) {
+        return field.getType() == Supplier.class ? resolveElementType(field) : field.getType();
+    }
+
+    /**
+     * A {@link Supplier} that converts and verifies {@code raw} on first access, so that commands only pay for
+     * the values they read. Errors still name the option or parameter, as they do for eagerly converted values.
+     */
+    private static LazyValue lazyValue(String raw, Field field, Option opt, Parameters param,
+                                       Converters converters, Object cmd, Object target) {
+        Class<?> valueType = resolveElementType(field);
+        return new LazyValue(raw, value -> {
+            Object converted = convert(value, valueType, field.getName(), opt, param, converters, cmd, target);
+            runVerifiers(cmd, converted, opt, param, converters, target);
+            return converted;
+        });
+    }
+
+    /** Arrays, {@link List}s and {@link IntStream}/{@link LongStream}/{@link DoubleStream} collect all values given for them. */
+    static boolean isMultiValueType(Class<?> type) {
+        return type.isArray() || List.class.isAssignableFrom(type)
+                || type == IntStream.class || type == LongStream.class || type == DoubleStream.class;
     }
 
     /** Binds {@code positionals} only when the list is non-empty. */
     private static void maybeBindPositionals(Object cmd, List<String> positionals,
                                               CommandModel model,
-                                              Map<Class<?>, TypeConverter<?>> converters) throws Exception {
+                                              Converters converters) throws Exception {
         if (!positionals.isEmpty()) {
-            bindPositionals(cmd, positionals, model.parameters, converters);
+            bindPositionals(cmd, positionals, null, model, converters);
         }
     }
 
 
 
     /** Converts a raw string, runs verifiers, and assigns the result to a field. */
-    private static void convertVerifyAndSet(Object cmdForErrors, Object target, Field field,
+    private static void convertVerifyAndSet(Object cmdForErrors, Object target, FieldAccess access,
                                              String value, Option opt, Parameters param,
-                                             Map<Class<?>, TypeConverter<?>> converters) throws Exception {
+                                             Converters converters) throws Exception {
+        Field field = access.field;
+        if (field.getType() == Supplier.class) {
+            access.set(target, lazyValue(value, field, opt, param, converters, cmdForErrors, target));
+            return;
+        }
         Object converted = convert(value, field.getType(), field.getName(), opt, param, converters, cmdForErrors, target);
-        runVerifiers(cmdForErrors, converted, opt, param, target);
-        field.set(target, converted);
+        runVerifiers(cmdForErrors, converted, opt, param, converters, target);
+        access.set(target, converted);
     }
 
     private static String findSimilarOption(String invalid, Set<String> validOptions) {
@@ -0,0 +1,148 @@
+package me.bechberger.femtocli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Reads and writes a single command field.
+ *
+ * <p>Uses the {@link GeneratedAccessor} of the declaring class when the annotation processor generated
+ * one, and otherwise a getter/setter {@link MethodHandle} pair that is resolved once per field.
+ * Values that the fast paths cannot store (e.g. widening {@code Integer} into a {@code long} field)
+ * are handed to {@link Field#set}, which keeps the reflective conversion and error semantics.
+ */
+final class FieldAccess {
+
+    /** Marks the classes that have a generated accessor, written by the annotation processor. */
+    static final String INDEX_PATH = "META-INF/femtocli/accessors/";
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<GeneratedAccessor> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected GeneratedAccessor computeValue(Class<?> type) {
+            return loadAccessor(type);
+        }
+    };
+
+    final Field field;
+    private final GeneratedAccessor accessor;
+    private final int index;
+    /** {@code (Object)Object}, or null to use reflection */
+    private final MethodHandle getter;
+    /** {@code (Object, Object)void}, or null to use reflection */
+    private final MethodHandle setter;
+
+    private FieldAccess(Field field, GeneratedAccessor accessor, int index, MethodHandle getter, MethodHandle setter) {
+        this.field = field;
+        this.accessor = accessor;
+        this.index = index;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    static FieldAccess of(Field field) {
+        field.setAccessible(true);
+        GeneratedAccessor accessor = ACCESSORS.get(field.getDeclaringClass());
+        if (accessor != null) {
+            String[] names = accessor.fieldNames();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(field.getName())) {
+                    return new FieldAccess(field, accessor, i, null, null);
+                }
+            }
+        }
+        return new FieldAccess(field, null, -1, getter(field), setter(field));
+    }
+
+    Object get(Object target) throws IllegalAccessException {
+        if (accessor != null) return accessor.get(target, index);
+        if (getter == null) return field.get(target);
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    void set(Object target, Object value) throws IllegalAccessException {
+        try {
+            if (accessor != null) {
+                accessor.set(target, index, value);
+            } else if (setter != null) {
+                setter.invokeExact(target, value);
+            } else {
+                field.set(target, value);
+            }
+        } catch (ClassCastException | NullPointerException e) {
+            // let reflection widen primitives or report the mismatch as it always did
+            field.set(target, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle getter(Field field) {
+        try {
+            MethodHandle mh = MethodHandles.lookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            return mh.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle setter(Field field) {
+        try {
+            MethodHandle mh = MethodHandles.lookup().unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            return mh.asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // e.g. static final fields: Field.set reports the problem when it is actually written
+            return null;
+        }
+    }
+
+    static String accessorName(Class<?> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        String pkg = lastDot >= 0 ? name.substring(0, lastDot + 1) : "";
+        return pkg + name.substring(lastDot + 1).replace("$", "$$") + GeneratedAccessor.SUFFIX;
+    }
+
+    /**
+     * The generated accessor of {@code type}, or null. Only classes marked in the processor's index are looked up,
+     * so that classes without an accessor cost a resource lookup instead of a failed class load.
+     */
+    private static GeneratedAccessor loadAccessor(Class<?> type) {
+        if (type.isArray() || type.isPrimitive() || type.getClassLoader() == null
+                || type.getClassLoader().getResource(INDEX_PATH + type.getName()) == null) {
+            return null;
+        }
+        Class<?> accessorClass;
+        try {
+            accessorClass = Class.forName(accessorName(type), true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            var ctor = accessorClass.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            return (GeneratedAccessor) ctor.newInstance();
+        } catch (Exception | LinkageError e) {
+            throw new IllegalStateException("Cannot instantiate generated accessor " + accessorClass.getName(), e);
+        }
+    }
+}
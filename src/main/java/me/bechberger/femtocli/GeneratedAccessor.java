@@ -0,0 +1,26 @@
+package me.bechberger.femtocli;
+
+/**
+ * Reflection-free access to the command fields declared by a single class.
+ *
+ * <p>Implementations are generated at compile time by the optional {@code femtocli-processor}
+ * annotation processor and are picked up automatically: for a class {@code com.example.Tool.Sub},
+ * FemtoCli looks for {@code com.example.Tool$$Sub_FemtoCliAccessor} (every {@code $} of the binary name is
+ * doubled, so that e.g. a top-level {@code Tool_Sub} gets a different accessor), if the processor marked the
+ * class in {@code META-INF/femtocli/accessors/<binary name>}. Fields that are not listed in
+ * {@link #fieldNames()} (e.g. private ones) are still accessed via reflection.
+ *
+ * <p>Not meant to be implemented by hand.
+ */
+public interface GeneratedAccessor {
+
+    /** Suffix of the generated class name. */
+    String SUFFIX = "_FemtoCliAccessor";
+
+    /** Names of the supported fields; the position in the array is the index for {@link #get}/{@link #set}. */
+    String[] fieldNames();
+
+    Object get(Object target, int index);
+
+    void set(Object target, int index, Object value);
+}
@@ -4,17 +4,41 @@ import me.bechberger.femtocli.annotations.Command;
 import me.bechberger.femtocli.annotations.Option;
 
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static me.bechberger.femtocli.FemtoCli.NO_DEFAULT_VALUE;
 
+/**
+ * Renders the usage help of a command.
+ *
+ * <p>The help is rendered into a string that is written to the output stream in one call, and cached per
+ * command class by everything else it depends on: the command path, the help related {@link CommandConfig}
+ * settings, agent mode and the removed commands. Commands whose mixins were pre-assigned with a subtype
+ * are rendered every time, like their {@link CommandModel} is built every time.
+ */
 final class HelpRenderer {
     private static final int MIN_LABEL_WIDTH = 12;  // Minimum width for labels
     private static final int MAX_LINE_WIDTH = 80;  // Maximum line width for wrapping
 
+    /** Key of the rendered help within a command class; {@code method} is set for method subcommands. */
+    private record HelpKey(Method method, String commandPath, CommandConfig.HelpSettings settings, boolean agentMode,
+                           Set<Class<?>> removedCommands) {}
+
+    private static final ClassValue<Map<HelpKey, String>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<HelpKey, String> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     static final class HelpEntry {
         final String label;
         final String description;
@@ -27,21 +51,52 @@ final class HelpRenderer {
         }
     }
 
-    static void render(Object cmd, String commandPath, CommandConfig commandConfig, PrintStream out, boolean agentMode) {
-        Command annotation = cmd.getClass().getAnnotation(Command.class);
-        // For method-based subcommands, retrieve the @Command from the method instead
-        if (annotation == null && cmd instanceof SubcommandMethodWrapper wrapper) {
-            annotation = wrapper.methodCommand();
-        }
-        boolean hasSubcommands = FemtoCli.hasSubcommands(cmd.getClass());
-        boolean showStandardHelpOptions = commandConfig.effectiveMixinStandardHelpOptions(annotation);
+    static void render(Object cmd, String commandPath, CommandConfig commandConfig, PrintStream out, boolean agentMode,
+                       Set<Class<?>> removedCommands) {
+        out.print(text(cmd, commandPath, commandConfig, agentMode, removedCommands));
+        out.flush();
+    }
 
+    static String text(Object cmd, String commandPath, CommandConfig commandConfig, boolean agentMode,
+                       Set<Class<?>> removedCommands) {
         CommandModel model;
         try {
             model = CommandModel.of(cmd);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if (model.template != CommandModel.template(cmd.getClass())) {
+            return renderToString(cmd, model, commandPath, commandConfig, agentMode, removedCommands);
+        }
+        HelpKey key = new HelpKey(cmd instanceof SubcommandMethodWrapper wrapper ? wrapper.method : null, commandPath,
+                commandConfig.helpSettings(), agentMode, Set.copyOf(removedCommands));
+        Map<HelpKey, String> cache = CACHE.get(cmd.getClass());
+        String text = cache.get(key);
+        if (text == null) {
+            text = renderToString(cmd, model, commandPath, commandConfig, agentMode, removedCommands);
+            cache.putIfAbsent(key, text);
+        }
+        return text;
+    }
+
+    private static String renderToString(Object cmd, CommandModel model, String commandPath, CommandConfig commandConfig,
+                                         boolean agentMode, Set<Class<?>> removedCommands) {
+        StringWriter buffer = new StringWriter(1024);
+        PrintWriter out = new PrintWriter(buffer);
+        render(cmd, model, commandPath, commandConfig, out, agentMode, removedCommands);
+        out.flush();
+        return buffer.toString();
+    }
+
+    private static void render(Object cmd, CommandModel model, String commandPath, CommandConfig commandConfig,
+                               PrintWriter out, boolean agentMode, Set<Class<?>> removedCommands) {
+        Command annotation = cmd.getClass().getAnnotation(Command.class);
+        // For method-based subcommands, retrieve the @Command from the method instead
+        if (annotation == null && cmd instanceof SubcommandMethodWrapper wrapper) {
+            annotation = wrapper.methodCommand();
+        }
+        boolean hasSubcommands = FemtoCli.hasSubcommands(cmd.getClass(), removedCommands);
+        boolean showStandardHelpOptions = commandConfig.effectiveMixinStandardHelpOptions(annotation);
 
         if (annotation != null) {
             for (String line : annotation.header()) out.println(line);
@@ -66,7 +121,7 @@ final class HelpRenderer {
         if (commandConfig.effectiveEmptyLineAfterDescription(annotation)) out.println();
 
         renderParametersAndOptions(model.parameters, model.options, showStandardHelpOptions, commandConfig, annotation, out, agentMode);
-        renderSubcommands(cmd.getClass(), hasSubcommands, out);
+        renderSubcommands(cmd.getClass(), hasSubcommands, removedCommands, out);
 
         // inline renderFooter
         if (annotation != null) {
@@ -88,7 +143,7 @@ final class HelpRenderer {
 
     private static void renderSynopsis(String displayName, boolean showStandardHelpOptions,
                                        boolean hasSubcommands,
-                                       List<FemtoCli.OptionMeta> options, List<FemtoCli.ParamInfo> parameters, PrintStream out,
+                                       List<FemtoCli.OptionMeta> options, List<FemtoCli.ParamInfo> parameters, PrintWriter out,
                                        boolean agentMode) {
         String sep = agentMode ? "," : " ";
         List<String> parts = new ArrayList<>();
@@ -146,11 +201,11 @@ final class HelpRenderer {
                                                    boolean showStandardHelpOptions,
                                                    CommandConfig commandConfig,
                                                    Command annotation,
-                                                   PrintStream out,
+                                                   PrintWriter out,
                                                    boolean agentMode) {
         List<HelpEntry> entries = new ArrayList<>();
         for (FemtoCli.ParamInfo param : parameters) {
-            String paramDesc = expandPlaceholders(param.param.description(), param.param.defaultValue(), param.field.getType(), null);
+            String paramDesc = expandPlaceholders(param.param.description(), param.param.defaultValue(), FemtoCli.valueType(param.field), null);
             entries.add(new HelpEntry(getLabel(param), paramDesc, false));
         }
 
@@ -164,7 +219,7 @@ final class HelpRenderer {
             if (opt.opt.hidden()) continue;
 
             String names = formatOptionNames(opt, agentMode);
-            String description = expandPlaceholders(opt.opt.description(), opt.opt.defaultValue(), opt.field.getType(), opt.opt);
+            String description = expandPlaceholders(opt.opt.description(), opt.opt.defaultValue(), FemtoCli.valueType(opt.field), opt.opt);
             description = maybeAppendDefaultValue(description, opt.opt, commandConfig, annotation);
             if (opt.opt.required()) description += " (required)";
 
@@ -201,7 +256,7 @@ final class HelpRenderer {
         return FemtoCli.isBooleanType(opt.field.getType()) ? joined : joined + "=" + getOptionParamLabel(opt);
     }
 
-    private static void printAlignedEntry(PrintStream out, String label, String description, int labelWidth, boolean hasShortOption) {
+    private static void printAlignedEntry(PrintWriter out, String label, String description, int labelWidth, boolean hasShortOption) {
         String fullLabel = (hasShortOption ? "  " : "      ") + label;
         int descCol = labelWidth + 6;
         String fmt = "%-" + descCol + "s%s%n";
@@ -266,23 +321,28 @@ final class HelpRenderer {
         return result;
     }
 
-    private static void renderSubcommands(Class<?> cmdClass, boolean hasSubcommands, PrintStream out) {
+    private static void renderSubcommands(Class<?> cmdClass, boolean hasSubcommands, Set<Class<?>> removedCommands,
+                                          PrintWriter out) {
         if (!hasSubcommands) return;
 
-        Command annotation = cmdClass.getAnnotation(Command.class);
+        Subcommands subcommands = Subcommands.of(cmdClass);
         int maxNameLength = 0;
 
         // First pass: compute max name length
-        if (annotation != null) {
-            for (Class<?> subcommand : annotation.subcommands()) {
-                if (FemtoCli.isCommandRemoved(subcommand)) continue;
-                Command sub = subcommand.getAnnotation(Command.class);
-                if (sub != null && !sub.hidden() && !sub.name().isEmpty()) {
-                    maxNameLength = Math.max(maxNameLength, sub.name().length());
-                }
+        for (Class<?> subcommand : subcommands.classes) {
+            if (removedCommands.contains(subcommand)) continue;
+            Command sub = subcommand.getAnnotation(Command.class);
+            if (sub != null && !sub.hidden() && !sub.name().isEmpty()) {
+                maxNameLength = Math.max(maxNameLength, sub.name().length());
+            }
+        }
+        for (LazySubcommand sub : subcommands.lazy) {
+            if (!sub.hidden && !sub.name.isEmpty() && subcommands.isReachable(sub)
+                    && !sub.isRemoved(removedCommands)) {
+                maxNameLength = Math.max(maxNameLength, sub.name.length());
             }
         }
-        for (Method method : FemtoCli.collectSubcommandMethods(cmdClass)) {
+        for (Method method : subcommands.methods) {
             Command cmdAnnotation = method.getAnnotation(Command.class);
             if (cmdAnnotation != null && !cmdAnnotation.hidden() && !cmdAnnotation.name().isEmpty()) {
                 maxNameLength = Math.max(maxNameLength, cmdAnnotation.name().length());
@@ -294,16 +354,20 @@ final class HelpRenderer {
         String fmt = "  %-" + (maxNameLength + 2) + "s%s%n";
 
         // Second pass: print
-        if (annotation != null) {
-            for (Class<?> subcommand : annotation.subcommands()) {
-                if (FemtoCli.isCommandRemoved(subcommand)) continue;
-                Command sub = subcommand.getAnnotation(Command.class);
-                if (sub != null && !sub.hidden() && !sub.name().isEmpty()) {
-                    out.printf(fmt, sub.name(), sub.description().length > 0 ? sub.description()[0] : "");
-                }
+        for (Class<?> subcommand : subcommands.classes) {
+            if (removedCommands.contains(subcommand)) continue;
+            Command sub = subcommand.getAnnotation(Command.class);
+            if (sub != null && !sub.hidden() && !sub.name().isEmpty()) {
+                out.printf(fmt, sub.name(), sub.description().length > 0 ? sub.description()[0] : "");
+            }
+        }
+        for (LazySubcommand sub : subcommands.lazy) {
+            if (!sub.hidden && !sub.name.isEmpty() && subcommands.isReachable(sub)
+                    && !sub.isRemoved(removedCommands)) {
+                out.printf(fmt, sub.name, sub.description);
             }
         }
-        for (Method method : FemtoCli.collectSubcommandMethods(cmdClass)) {
+        for (Method method : subcommands.methods) {
             Command cmdAnnotation = method.getAnnotation(Command.class);
             if (cmdAnnotation != null && !cmdAnnotation.hidden() && !cmdAnnotation.name().isEmpty()) {
                 out.printf(fmt, cmdAnnotation.name(), cmdAnnotation.description().length > 0 ? cmdAnnotation.description()[0] : "");
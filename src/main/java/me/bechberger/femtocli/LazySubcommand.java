@@ -0,0 +1,177 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A subcommand that is known by name and class name, and whose class is only loaded when it is selected.
+ *
+ * <p>Index files list one subcommand per line as {@code name TAB className TAB hidden TAB description},
+ * where the description is the first description line with {@code \}, tab and newline escaped as
+ * {@code \\}, {@code \t} and {@code \n}. Lines starting with {@code #} are comments.
+ */
+final class LazySubcommand {
+
+    /** Index of {@link Command#lazySubcommands()}, followed by the binary name of the parent command. */
+    static final String INDEX_PATH = "META-INF/femtocli/subcommands/";
+    /** Indexes of {@link Command#pluginOf()} plugins, followed by the binary name of the parent; one per JAR. */
+    static final String PLUGIN_PATH = "META-INF/femtocli/plugins/";
+
+    final String name;
+    final String className;
+    final boolean hidden;
+    final String description;
+    /** Whether the subcommand comes from a plugin index, i.e. from a JAR the parent command does not know. */
+    final boolean plugin;
+    private final ClassLoader loader;
+    private volatile Class<?> type;
+
+    private LazySubcommand(String name, String className, boolean hidden, String description, boolean plugin,
+                           ClassLoader loader) {
+        this.name = name;
+        this.className = className;
+        this.hidden = hidden;
+        this.description = description;
+        this.plugin = plugin;
+        this.loader = loader;
+    }
+
+    /**
+     * Loads (without initializing) the subcommand class. A plugin whose class is missing or broken, e.g. because
+     * of a stale or partial plugin JAR, is a usage error of {@code cmdForErrors}, so that it cannot crash the CLI.
+     */
+    Class<?> load(Object cmdForErrors) throws UsageEx {
+        Class<?> t = type;
+        if (t == null) {
+            try {
+                t = Class.forName(className, false, loader);
+            } catch (ClassNotFoundException e) {
+                if (plugin) {
+                    throw new UsageEx(cmdForErrors, "Cannot load plugin subcommand '" + name + "': class "
+                            + className + " not found");
+                }
+                throw new IllegalStateException("Cannot load subcommand '" + name + "': " + className, e);
+            } catch (LinkageError e) {
+                if (!plugin) throw e;
+                throw new UsageEx(cmdForErrors, "Cannot load plugin subcommand '" + name + "': class "
+                        + className + ": " + e);
+            }
+            type = t;
+        }
+        return t;
+    }
+
+    /** Whether the class is removed, compared by name so that the class does not need to be loaded. */
+    boolean isRemoved(Set<Class<?>> removedCommands) {
+        for (Class<?> removed : removedCommands) {
+            if (removed.getName().equals(className)) return true;
+        }
+        return false;
+    }
+
+    /** The lazy subcommands of {@code parent}, taken from the build-time index where possible. */
+    static List<LazySubcommand> of(Class<?> parent, String[] classNames) {
+        if (classNames.length == 0) return List.of();
+        ClassLoader loader = loaderOf(parent);
+        Map<String, LazySubcommand> indexed = new LinkedHashMap<>();
+        URL index = loader.getResource(INDEX_PATH + parent.getName());
+        if (index != null) {
+            for (LazySubcommand sub : readIndex(index, false, loader)) {
+                indexed.putIfAbsent(sub.className, sub);
+            }
+        }
+        List<LazySubcommand> result = new ArrayList<>(classNames.length);
+        for (String className : classNames) {
+            LazySubcommand sub = indexed.get(className);
+            if (sub == null) {
+                sub = fromClass(className, loader);
+            }
+            if (sub != null) result.add(sub);
+        }
+        return List.copyOf(result);
+    }
+
+    /** The plugin subcommands of {@code parent} from all plugin indexes visible to its class loader. */
+    static List<LazySubcommand> plugins(Class<?> parent) {
+        ClassLoader loader = loaderOf(parent);
+        List<LazySubcommand> result = new ArrayList<>();
+        try {
+            Enumeration<URL> indexes = loader.getResources(PLUGIN_PATH + parent.getName());
+            while (indexes.hasMoreElements()) {
+                result.addAll(readIndex(indexes.nextElement(), true, loader));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot look up plugins of " + parent.getName(), e);
+        }
+        return List.copyOf(result);
+    }
+
+    /** Fallback without index: load the class to read its {@code @Command}. */
+    private static LazySubcommand fromClass(String className, ClassLoader loader) {
+        Class<?> cls;
+        try {
+            cls = Class.forName(className, false, loader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot load lazy subcommand class " + className, e);
+        }
+        Command ann = cls.getAnnotation(Command.class);
+        if (ann == null) return null;
+        LazySubcommand sub = new LazySubcommand(ann.name(), className, ann.hidden(),
+                ann.description().length > 0 ? ann.description()[0] : "", false, loader);
+        sub.type = cls;
+        return sub;
+    }
+
+    static List<LazySubcommand> readIndex(URL index, boolean plugins, ClassLoader loader) {
+        List<LazySubcommand> result = new ArrayList<>();
+        try (InputStream in = index.openStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t", 4);
+                if (parts.length < 3) {
+                    throw new IllegalStateException("Invalid subcommand index line in " + index + ": " + line);
+                }
+                result.add(new LazySubcommand(parts[0], parts[1], Boolean.parseBoolean(parts[2]),
+                        parts.length > 3 ? unescape(parts[3]) : "", plugins, loader));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read subcommand index " + index, e);
+        }
+        return result;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static ClassLoader loaderOf(Class<?> cls) {
+        ClassLoader loader = cls.getClassLoader();
+        return loader != null ? loader : ClassLoader.getSystemClassLoader();
+    }
+}
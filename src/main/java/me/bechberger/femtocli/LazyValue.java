@@ -0,0 +1,37 @@
+package me.bechberger.femtocli;
+
+import java.util.function.Supplier;
+
+/**
+ * The value of a {@link Supplier} typed {@code @Option} or {@code @Parameters} field: the raw value is
+ * converted and verified on the first {@link #get()}, and the result is memoized. A command that never
+ * reads the value never pays for its conversion.
+ *
+ * <p>An invalid value is reported as a {@link LazyValues.InvalidValueException} from every {@link #get()},
+ * which is reported like any other usage error when it propagates out of the command.
+ */
+final class LazyValue implements Supplier<Object> {
+
+    private String raw;
+    private LazyValues.Conversion conversion;
+    private Object value;
+
+    LazyValue(String raw, LazyValues.Conversion conversion) {
+        this.raw = raw;
+        this.conversion = conversion;
+    }
+
+    @Override
+    public synchronized Object get() {
+        if (conversion != null) {
+            try {
+                value = conversion.convert(raw);
+            } catch (UsageEx e) {
+                throw new LazyValues.InvalidValueException(e);
+            }
+            conversion = null;
+            raw = null;
+        }
+        return value;
+    }
+}
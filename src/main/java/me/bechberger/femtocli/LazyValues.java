@@ -0,0 +1,92 @@
+package me.bechberger.femtocli;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Values of an {@link Iterator} or {@link Stream} typed {@code @Parameters} field, converted and verified
+ * one at a time while the command consumes them. The raw values come either straight from the remaining
+ * {@link Tokens} (for a trailing parameter) or from the collected positionals, where each raw value is
+ * released once it is converted; in both cases neither the converted nor the already consumed raw values
+ * are kept.
+ */
+final class LazyValues implements Iterator<Object> {
+
+    /** Converts and verifies a single raw value. */
+    @FunctionalInterface
+    interface Conversion {
+        Object convert(String raw) throws UsageEx;
+    }
+
+    /**
+     * An invalid value, or an unreadable argument file, found while the command consumes the values. It is
+     * reported like any other usage error when it propagates out of the command, and is an
+     * {@link IllegalArgumentException} like other errors of {@link FemtoCli#parse(Object, String...)}.
+     */
+    static final class InvalidValueException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        final UsageEx usage;
+
+        InvalidValueException(UsageEx usage) {
+            super(usage.getMessage(), usage);
+            this.usage = usage;
+        }
+    }
+
+    private final Iterator<String> raw;
+    private final Conversion conversion;
+
+    LazyValues(Iterator<String> raw, Conversion conversion) {
+        this.raw = raw;
+        this.conversion = conversion;
+    }
+
+    /** The values in {@code raw}, each of which is set to null in {@code raw} once it is returned. */
+    static Iterator<String> releasing(List<String> raw) {
+        ListIterator<String> values = raw.listIterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public String next() {
+                String value = values.next();
+                values.set(null);
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        return raw.hasNext();
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String value = raw.next();
+        try {
+            return conversion.convert(value);
+        } catch (UsageEx e) {
+            throw new InvalidValueException(e);
+        }
+    }
+
+    /**
+     * A stream over the values. Its size is deliberately unknown: a SIZED stream would answer {@code count()}
+     * without calling {@link #next()}, so values would never be converted and verified.
+     */
+    Stream<Object> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    }
+}
@@ -0,0 +1,96 @@
+package me.bechberger.femtocli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Invokes single-argument converter and verifier methods through {@link MethodHandle}s that are
+ * created once per method. Behaves like {@link Method#invoke}: exceptions thrown by the method are
+ * wrapped in an {@link InvocationTargetException}, while failures of the handle itself propagate as they are.
+ */
+final class MethodAccess {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    /** {@code (Throwable)Object}, always throws an {@link InvocationTargetException}. */
+    private static final MethodHandle WRAP_TARGET_EXCEPTION;
+
+    static {
+        try {
+            WRAP_TARGET_EXCEPTION = MethodHandles.lookup().findStatic(MethodAccess.class, "wrapTargetException",
+                    MethodType.methodType(Object.class, Throwable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A method's handle and the type its argument must have to be passed to the handle as it is.
+     *
+     * @param argType   the parameter type, boxed if it is primitive
+     * @param primitive whether the parameter is primitive, so that it does not take null
+     * @param handle    {@code (Object receiver, Object arg)Object}
+     */
+    private record Invoker(Class<?> argType, boolean primitive, MethodHandle handle) {
+        boolean accepts(Object arg) {
+            return arg == null ? !primitive : argType.isInstance(arg);
+        }
+    }
+
+    /** Per declaring class, so that cached handles don't keep user class loaders alive. */
+    private static final ClassValue<Map<Method, Invoker>> INVOKERS = new ClassValue<>() {
+        @Override
+        protected Map<Method, Invoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private MethodAccess() {}
+
+    /** Invokes {@code m(arg)} on {@code receiver} (ignored for static methods). */
+    static Object invoke(Method m, Object receiver, Object arg) throws IllegalAccessException, InvocationTargetException {
+        Invoker invoker = INVOKERS.get(m.getDeclaringClass()).computeIfAbsent(m, MethodAccess::invoker);
+        if (!invoker.accepts(arg)) {
+            // let reflection widen primitives or report the argument mismatch
+            return m.invoke(receiver, arg);
+        }
+        try {
+            return (Object) invoker.handle.invokeExact(receiver, arg);
+        } catch (InvocationTargetException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // the handle only throws what wrapTargetException throws and unchecked exceptions
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static Invoker invoker(Method m) {
+        Class<?> paramType = m.getParameterTypes()[0];
+        Class<?> argType = MethodType.methodType(paramType).wrap().returnType();
+        try {
+            m.setAccessible(true);
+            MethodHandle mh = MethodHandles.lookup().unreflect(m);
+            // wrap only what the method throws, not the failures of the adaptations below
+            MethodHandle handler = MethodHandles.dropArguments(
+                    WRAP_TARGET_EXCEPTION.asType(MethodType.methodType(mh.type().returnType(), Throwable.class)),
+                    1, mh.type().parameterList());
+            mh = MethodHandles.catchException(mh, Throwable.class, handler);
+            if (Modifier.isStatic(m.getModifiers())) {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            return new Invoker(argType, paramType.isPrimitive(), mh.asType(INVOKER_TYPE));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access method " + m, e);
+        }
+    }
+
+    private static Object wrapTargetException(Throwable t) throws InvocationTargetException {
+        throw new InvocationTargetException(t);
+    }
+}
@@ -3,6 +3,7 @@ package me.bechberger.femtocli;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Provides access to runtime CLI properties for the currently executing command.
@@ -19,9 +20,11 @@ public final class Spec {
     private final CommandConfig commandConfig;
     private final List<Object> commandChain;
     private final boolean agentMode;
+    private final Set<Class<?>> removedCommands;
 
 
-    Spec(Object command, PrintStream out, PrintStream err, List<String> commandPath, CommandConfig commandConfig, List<Object> commandChain, boolean agentMode) {
+    Spec(Object command, PrintStream out, PrintStream err, List<String> commandPath, CommandConfig commandConfig, List<Object> commandChain, boolean agentMode,
+         Set<Class<?>> removedCommands) {
         this.command = command;
         this.out = out;
         this.err = err;
@@ -29,6 +32,7 @@ public final class Spec {
         this.commandConfig = commandConfig.copy();
         this.commandChain = List.copyOf(commandChain);
         this.agentMode = agentMode;
+        this.removedCommands = removedCommands;
     }
 
     public Object command() { return command; }
@@ -80,6 +84,6 @@ public final class Spec {
     /** Print usage for the current command to the provided output stream. */
     public void usage(PrintStream out) {
         // Use the contextual overload so output matches the configuring FemtoCli instance.
-        FemtoCli.usage(command, commandPath, commandConfig, out, agentMode);
+        FemtoCli.usage(command, commandPath, commandConfig, out, agentMode, removedCommands);
     }
 }
\ No newline at end of file
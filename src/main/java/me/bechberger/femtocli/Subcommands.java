@@ -0,0 +1,159 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Name-indexed subcommand table of a command class, built once per class.
+ *
+ * <p>Class subcommands are listed in {@code @Command(subcommands = ...)} order. Several classes may
+ * share a name; lookups return the first one that is not in the invocation's removed commands
+ * (see {@link FemtoCli.Builder#removeCommands(Class[])}), exactly like the former linear scan.
+ */
+final class Subcommands {
+
+    private static final Class<?>[] NONE = new Class<?>[0];
+
+    private static final ClassValue<Subcommands> TABLES = new ClassValue<>() {
+        @Override
+        protected Subcommands computeValue(Class<?> type) {
+            return new Subcommands(type);
+        }
+    };
+
+    /** Declared subcommand classes, including ones without {@code @Command}. */
+    final List<Class<?>> classes;
+    /** {@code @Command} methods, own methods before inherited ones. */
+    final List<Method> methods;
+    /** {@link Command#lazySubcommands()} followed by {@link Command#plugins()}, not loaded until selected. */
+    final List<LazySubcommand> lazy;
+    private final Map<String, Class<?>[]> classesByName;
+    private final Map<String, Method> methodsByName;
+    private final Map<String, LazySubcommand> lazyByName;
+
+    private Subcommands(Class<?> cmdClass) {
+        Command ann = cmdClass.getAnnotation(Command.class);
+        this.classes = ann == null ? List.of() : List.of(ann.subcommands());
+        this.methods = List.copyOf(collectMethods(cmdClass));
+        this.lazy = ann == null ? List.of() : lazySubcommands(cmdClass, ann);
+
+        Map<String, Class<?>[]> byName = new HashMap<>();
+        for (Class<?> sub : classes) {
+            Command s = sub.getAnnotation(Command.class);
+            if (s == null) continue;
+            Class<?>[] existing = byName.getOrDefault(s.name(), NONE);
+            Class<?>[] extended = Arrays.copyOf(existing, existing.length + 1);
+            extended[existing.length] = sub;
+            byName.put(s.name(), extended);
+        }
+        this.classesByName = byName;
+
+        Map<String, Method> methodByName = new HashMap<>();
+        for (Method m : methods) {
+            methodByName.putIfAbsent(m.getAnnotation(Command.class).name(), m);
+        }
+        this.methodsByName = methodByName;
+
+        Map<String, LazySubcommand> lazyByName = new HashMap<>();
+        for (LazySubcommand sub : lazy) {
+            if (!classesByName.containsKey(sub.name) && !methodsByName.containsKey(sub.name)) {
+                lazyByName.putIfAbsent(sub.name, sub);
+            }
+        }
+        this.lazyByName = lazyByName;
+    }
+
+    private static List<LazySubcommand> lazySubcommands(Class<?> cmdClass, Command ann) {
+        List<LazySubcommand> declared = LazySubcommand.of(cmdClass, ann.lazySubcommands());
+        if (!ann.plugins()) return declared;
+        List<LazySubcommand> all = new ArrayList<>(declared);
+        all.addAll(LazySubcommand.plugins(cmdClass));
+        return List.copyOf(all);
+    }
+
+    static Subcommands of(Class<?> cmdClass) {
+        return TABLES.get(cmdClass);
+    }
+
+    /**
+     * First subcommand class called {@code name} that has not been removed, or {@code null}.
+     * Lazy and plugin subcommands come after the ones from {@link Command#subcommands()} and are loaded here.
+     */
+    Class<?> findClass(Object cmdForErrors, String name, Set<Class<?>> removedCommands) throws UsageEx {
+        Class<?>[] candidates = classesByName.get(name);
+        if (candidates != null) {
+            for (Class<?> sub : candidates) {
+                if (!removedCommands.contains(sub)) return sub;
+            }
+        }
+        LazySubcommand sub = lazyByName.get(name);
+        if (sub == null || sub.isRemoved(removedCommands)) return null;
+        return sub.load(cmdForErrors);
+    }
+
+    /** First {@code @Command} method called {@code name}, or {@code null}. */
+    Method findMethod(String name) {
+        return methodsByName.get(name);
+    }
+
+    /**
+     * Whether {@code sub} can be selected by its name, i.e. no declared subcommand, {@code @Command} method
+     * or earlier lazy subcommand has the same name.
+     */
+    boolean isReachable(LazySubcommand sub) {
+        return lazyByName.get(sub.name) == sub;
+    }
+
+    boolean isEmpty(Set<Class<?>> removedCommands) {
+        if (!methods.isEmpty()) return false;
+        for (Class<?> sub : classes) {
+            if (!removedCommands.contains(sub)) return false;
+        }
+        for (LazySubcommand sub : lazy) {
+            if (!sub.isRemoved(removedCommands)) return false;
+        }
+        return true;
+    }
+
+    private static List<Method> collectMethods(Class<?> cmdClass) {
+        List<Method> methods = new ArrayList<>();
+        Set<String> seenSignatures = new HashSet<>();
+
+        for (Class<?> c = cmdClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                String signature = methodSignature(m);
+                if (!seenSignatures.add(signature)) {
+                    continue;
+                }
+
+                if (c != cmdClass && java.lang.reflect.Modifier.isPrivate(m.getModifiers())) {
+                    continue;
+                }
+
+                if (m.getAnnotation(Command.class) != null) {
+                    methods.add(m);
+                }
+            }
+        }
+
+        return methods;
+    }
+
+    private static String methodSignature(Method m) {
+        StringBuilder sb = new StringBuilder(m.getName()).append('(');
+        Class<?>[] types = m.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(types[i].getName());
+        }
+        return sb.append(')').toString();
+    }
+}
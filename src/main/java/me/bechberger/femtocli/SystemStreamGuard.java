@@ -0,0 +1,102 @@
+package me.bechberger.femtocli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects direct writes to {@link System#out}/{@link System#err} during {@link CaptureMode#STRICT} runs.
+ *
+ * <p>While at least one strict run is active, both system streams are replaced by pass-through
+ * streams that note writes from watched threads. The originals are restored when the last strict
+ * run ends (unless someone else replaced the streams in the meantime). Strict runs may nest on one thread,
+ * e.g. when a command runs another command: the outer run's state is restored when the inner run ends, so
+ * that direct writes of the outer run before or after the inner one are still detected.
+ */
+final class SystemStreamGuard {
+
+    private static final Object LOCK = new Object();
+    /** Watched threads, mapped to the name of the first stream they wrote to ("" if none). */
+    private static final Map<Thread, String> WATCHED = new ConcurrentHashMap<>();
+
+    private static int users;
+    private static PrintStream originalOut;
+    private static PrintStream originalErr;
+    private static PrintStream guardedOut;
+    private static PrintStream guardedErr;
+
+    private SystemStreamGuard() {
+    }
+
+    /**
+     * Starts watching the current thread; must be paired with {@link #end(String)}.
+     *
+     * @return the state of an enclosing strict run on this thread, to pass to {@link #end(String)}
+     */
+    static String begin() {
+        synchronized (LOCK) {
+            if (users++ == 0) {
+                originalOut = System.out;
+                originalErr = System.err;
+                guardedOut = new PrintStream(new Guarded(originalOut, "System.out"), true);
+                guardedErr = new PrintStream(new Guarded(originalErr, "System.err"), true);
+                System.setOut(guardedOut);
+                System.setErr(guardedErr);
+            }
+        }
+        return WATCHED.put(Thread.currentThread(), "");
+    }
+
+    /**
+     * Stops watching the current thread for this run, going back to the enclosing run's state if there is one.
+     *
+     * @param enclosing what {@link #begin()} returned
+     * @return the stream the thread wrote to directly during this run, or {@code null} if it did not
+     */
+    static String end(String enclosing) {
+        String written = enclosing == null
+                ? WATCHED.remove(Thread.currentThread())
+                : WATCHED.put(Thread.currentThread(), enclosing);
+        synchronized (LOCK) {
+            if (--users == 0) {
+                if (System.out == guardedOut) System.setOut(originalOut);
+                if (System.err == guardedErr) System.setErr(originalErr);
+                originalOut = originalErr = guardedOut = guardedErr = null;
+            }
+        }
+        return written == null || written.isEmpty() ? null : written;
+    }
+
+    private static final class Guarded extends OutputStream {
+        private final PrintStream delegate;
+        private final String name;
+
+        Guarded(PrintStream delegate, String name) {
+            this.delegate = delegate;
+            this.name = name;
+        }
+
+        private void note() {
+            WATCHED.computeIfPresent(Thread.currentThread(), (t, first) -> first.isEmpty() ? name : first);
+        }
+
+        @Override
+        public void write(int b) {
+            note();
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            note();
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package me.bechberger.femtocli;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The arguments still to be parsed. With {@link CommandConfig#expandArgFiles}, arguments from argument files
+ * are only read when parsing reaches them, so that a trailing {@code Iterator}, {@code Stream} or
+ * {@code Consumer} parameter can take them straight from the file (see {@link #values()}).
+ */
+final class Tokens {
+
+    private final ArrayDeque<String> buffered;
+    /** The arguments after {@link #buffered}, or null if there are none. */
+    private ArgFiles source;
+    private boolean streaming;
+
+    private Tokens(ArrayDeque<String> buffered, ArgFiles source) {
+        this.buffered = buffered;
+        this.source = source;
+    }
+
+    static Tokens of(String[] args) {
+        var buffered = new ArrayDeque<String>(args.length);
+        for (String a : args) buffered.add(a);
+        return new Tokens(buffered, null);
+    }
+
+    /** The arguments with {@code @file} arguments expanded as they are reached. */
+    static Tokens expandingArgFiles(Object cmdForErrors, String[] args) {
+        return new Tokens(new ArrayDeque<>(), new ArgFiles(cmdForErrors, args));
+    }
+
+    boolean isEmpty() {
+        return buffered.isEmpty() && !fill();
+    }
+
+    /** The next argument, or null if there is none. */
+    String peekFirst() {
+        return isEmpty() ? null : buffered.peekFirst();
+    }
+
+    String removeFirst() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return buffered.removeFirst();
+    }
+
+    void addFirst(String token) {
+        buffered.addFirst(token);
+    }
+
+    /** All remaining arguments; reads the whole source. */
+    List<String> remaining() {
+        while (fill()) {
+            // buffer everything
+        }
+        return new ArrayList<>(buffered);
+    }
+
+    void replaceRemaining(List<String> tokens) {
+        remaining();
+        buffered.clear();
+        buffered.addAll(tokens);
+    }
+
+    /**
+     * The remaining arguments as values, each removed when it is returned, so that neither the arguments nor
+     * the values are collected.
+     */
+    Iterator<String> values() {
+        streaming = true;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !isEmpty();
+            }
+
+            @Override
+            public String next() {
+                return removeFirst();
+            }
+        };
+    }
+
+    /** Whether the remaining arguments were handed to a streaming parameter by {@link #values()}. */
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /** Closes argument files that were not read to their end. */
+    void close() {
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+    }
+
+    /** Reads the next argument from the source into the buffer; false if there is none. */
+    private boolean fill() {
+        if (source == null) return false;
+        String next;
+        try {
+            next = source.next();
+        } catch (UsageEx e) {
+            close();
+            throw new LazyValues.InvalidValueException(e);
+        }
+        if (next == null) {
+            source = null;
+            return false;
+        }
+        buffered.addLast(next);
+        return true;
+    }
+}
@@ -1,19 +1,25 @@
 package me.bechberger.femtocli;
 
+/**
+ * Signals help, version and usage errors from the parser to {@link FemtoCli}'s run loop.
+ *
+ * <p>This is control flow, not a failure, so it doesn't capture a stack trace and is not suppressible:
+ * filling in the stack would make rejecting bad input many times slower than parsing good input.
+ */
 final class UsageEx extends Exception {
     final Object cmd;
     final boolean help;
     final boolean version;
 
     UsageEx(Object cmd, String message) {
-        super(message);
+        super(message, null, false, false);
         this.cmd = cmd;
         this.help = false;
         this.version = false;
     }
 
     private UsageEx(Object cmd, boolean help, boolean version) {
-        super("");
+        super("", null, false, false);
         this.cmd = cmd;
         this.help = help;
         this.version = version;
@@ -26,4 +32,4 @@ final class UsageEx extends Exception {
     static UsageEx version() {
         return new UsageEx(null, false, true);
     }
-}
\ No newline at end of file
+}
@@ -54,6 +54,35 @@ public @interface Command {
 
     Class<?>[] subcommands() default {};
 
+    /**
+     * Subcommands given by binary class name (e.g. {@code "com.example.Tool$Deploy"}), which are only
+     * loaded when they are selected on the command line.
+     *
+     * <p>Reading {@link #subcommands()} loads every listed class, which is noticeable for large command trees.
+     * With the optional {@code femtocli-processor}, the names, descriptions and hidden flags of these
+     * subcommands are stored in a build-time index, so that help output doesn't load them either.
+     * Without the index, the classes are loaded (but not initialized) when the parent is first used.
+     *
+     * <p>Lazy subcommands cannot be the {@link #defaultSubcommand()}.
+     */
+    String[] lazySubcommands() default {};
+
+    /**
+     * Also offer the plugin subcommands that other JARs register for this command via {@link #pluginOf()}.
+     *
+     * <p>Plugins are found through the {@code META-INF/femtocli/plugins/<binary name of this class>} index
+     * files on the class path (or module path) of this class's class loader, which the optional
+     * {@code femtocli-processor} generates. Like {@link #lazySubcommands()}, a plugin class is only loaded
+     * when it is selected. Subcommands declared on this command win over plugins with the same name.
+     */
+    boolean plugins() default false;
+
+    /**
+     * Register this command as a plugin subcommand of the given command, which must enable {@link #plugins()}.
+     * Requires the {@code femtocli-processor} when compiling the plugin, which writes the index.
+     */
+    Class<?> pluginOf() default void.class;
+
     /**
      * Default subcommand class to route to when the next token on the command line
      * is not a recognised subcommand name.
@@ -0,0 +1,34 @@
+package me.bechberger.femtocli.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link me.bechberger.femtocli.TypeConverter} or {@link me.bechberger.femtocli.Verifier}
+ * class as stateful.
+ *
+ * <p>Converter and verifier classes referenced from {@link Option} and {@link Parameters} are
+ * instantiated once and then shared by all values, commands and threads. Annotate a class
+ * with {@code @Stateful} to get one instance per run instead, shared by all values converted or
+ * verified in that run, including those of subcommands and lazily converted ones.
+ *
+ * <p>Example:
+ * <pre>{@code
+ * @Stateful
+ * class CountingConverter implements TypeConverter<Integer> {
+ *     private int calls;
+ *
+ *     @Override
+ *     public Integer convert(String value) {
+ *         calls++;
+ *         return Integer.parseInt(value);
+ *     }
+ * }
+ * }</pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Stateful {
+}
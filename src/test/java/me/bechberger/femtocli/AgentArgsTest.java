@@ -255,6 +255,19 @@ class AgentArgsTest {
         assertThat(argv).containsExactly("x", "y");
     }
 
+    @Test
+    void toArgv_keepsInnerWhitespaceAndTrimsAroundQuotesAndEscapes() {
+        String[] argv = AgentArgs.toArgv(" a b 'c ' d ,  \\, , x\\\\ \\= ");
+        assertThat(argv).containsExactly("a b c  d", ",", "x\\ =");
+    }
+
+    @Test
+    void agentArgsToArgv_acceptsCharSequence() {
+        String[] argv = FemtoCli.agentArgsToArgv(java.nio.CharBuffer.wrap("start, interval=1ms ,file='a,b'"));
+        assertThat(argv).containsExactly("start", "interval=1ms", "file=a,b");
+        assertThat(FemtoCli.agentArgsToArgv(new StringBuilder(" \t"))).isEmpty();
+    }
+
     @Test
     void toArgv_canUseEscapedCommaAndEqualsOutsideQuotes() {
         String[] argv = AgentArgs.toArgv("a\\,b,c\\=d");
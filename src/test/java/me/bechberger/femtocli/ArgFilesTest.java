@@ -0,0 +1,125 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArgFilesTest {
+
+    @Command(name = "files")
+    static class FileList implements Runnable {
+        @Option(names = "--name")
+        String name;
+
+        @Parameters
+        List<String> files = new ArrayList<>();
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "ids")
+    static class Ids implements Runnable {
+        @Parameters
+        int[] ids;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static final FemtoCli.Builder BUILDER = FemtoCli.builder().commandConfig(c -> c.expandArgFiles = true);
+
+    @Test
+    void expandsQuotedArgumentsAndSkipsComments(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("args");
+        Files.writeString(file, """
+                # the name
+                --name "Jane Doe"
+                  # indented comment
+                a.txt 'b c.txt' "say \\"hi\\"" C:\\path#1 ''
+                """);
+        FileList cmd = (FileList) BUILDER.parse(new FileList(), "x", "@" + file, "y");
+        assertEquals("Jane Doe", cmd.name);
+        assertEquals(List.of("x", "a.txt", "b c.txt", "say \"hi\"", "C:\\path#1", "", "y"), cmd.files);
+    }
+
+    @Test
+    void expandsNestedFilesAndKeepsOtherArguments(@TempDir Path dir) throws IOException {
+        Path inner = dir.resolve("inner");
+        Files.writeString(inner, "b c");
+        Path outer = dir.resolve("outer");
+        Files.writeString(outer, "a @" + inner + " d");
+        FileList cmd = (FileList) BUILDER.parse(new FileList(), "@" + outer, "@@literal", "@missing", "--", "@" + inner);
+        assertEquals(List.of("a", "b", "c", "d", "@literal", "@missing", "@" + inner), cmd.files);
+    }
+
+    @Test
+    void reportsCyclesAndUnterminatedQuotes(@TempDir Path dir) throws IOException {
+        Path self = dir.resolve("self");
+        Files.writeString(self, "a @" + self);
+        RunResult cycle = BUILDER.runCaptured(new FileList(), "@" + self);
+        assertEquals(2, cycle.exitCode());
+        assertThat(cycle.err()).contains("Error: Argument file " + self + " includes itself");
+
+        Path open = dir.resolve("open");
+        Files.writeString(open, "a 'b");
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> BUILDER.parse(new FileList(), "@" + open));
+        assertThat(ex.getMessage()).contains("Unterminated quote in argument file");
+    }
+
+    @Test
+    void streamsLargeFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("ids");
+        int count = 200_000;
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < count; i++) writer.write(i + (i % 10 == 9 ? "\n" : " "));
+        }
+        Ids cmd = (Ids) BUILDER.parse(new Ids(), "@" + file);
+        assertEquals(count, cmd.ids.length);
+        assertArrayEquals(new int[]{0, 1, 2}, java.util.Arrays.copyOf(cmd.ids, 3));
+        assertEquals(count - 1, cmd.ids[count - 1]);
+    }
+
+    @Test
+    void readsStandardInputOnce() {
+        var stdin = System.in;
+        System.setIn(new ByteArrayInputStream("b 'c d'\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            FileList cmd = (FileList) BUILDER.parse(new FileList(), "a", "@-", "e");
+            assertEquals(List.of("a", "b", "c d", "e"), cmd.files);
+
+            RunResult twice = BUILDER.runCaptured(new FileList(), "@-", "@-");
+            assertEquals(2, twice.exitCode());
+            assertThat(twice.err()).contains("Error: Standard input can only be read once as an argument file");
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+    @Test
+    void disabledByDefault(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("args");
+        Files.writeString(file, "a b");
+        FileList cmd = (FileList) FemtoCli.parse(new FileList(), "@" + file);
+        assertEquals(List.of("@" + file), cmd.files);
+    }
+}
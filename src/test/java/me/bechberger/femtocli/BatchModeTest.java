@@ -0,0 +1,197 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchModeTest {
+
+    @Command(name = "tool", subcommands = {Echo.class})
+    static class Tool implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "echo")
+    static class Echo implements Callable<Integer> {
+        @Option(names = "--exit", defaultValue = "0")
+        int exit;
+
+        @Parameters
+        List<String> words;
+
+        Spec spec;
+
+        @Override
+        public Integer call() {
+            spec.out().println(String.join("|", words));
+            return exit;
+        }
+    }
+
+    private static RunResult batch(CompiledCli cli, String input, int parallelism) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = cli.runBatch(new StringReader(input), new PrintStream(out, true), new PrintStream(err, true), parallelism);
+        return new RunResult(out.toString(), err.toString(), exitCode);
+    }
+
+    @Test
+    void splitsLikeArgumentFiles() {
+        assertEquals(List.of("echo", "a b", "c\"d", "it's", "C:\\dir\\x", "g"),
+                Batch.split("echo 'a b' \"c\\\"d\" 'it\\'s' C:\\dir\\x  g "));
+        assertEquals(List.of("x", ""), Batch.split("x ''"));
+        assertThrows(IllegalArgumentException.class, () -> Batch.split("echo 'open"));
+    }
+
+    @Test
+    void batchLinesAndArgumentFilesSplitAlike(@TempDir Path dir) throws Exception {
+        String line = "echo 'a b' \"c\\\"d\" 'it\\'s' C:\\dir\\x \"\" e\\ f";
+        Path file = Files.writeString(dir.resolve("args"), line);
+        List<String> fromFile = new ArrayList<>();
+        try (ArgFiles argFiles = new ArgFiles(null, new String[]{"@" + file})) {
+            for (String arg; (arg = argFiles.next()) != null; ) fromFile.add(arg);
+        }
+        assertEquals(fromFile, Batch.split(line));
+    }
+
+    @Test
+    void runsEachLineOnAFreshInstanceAndReturnsTheHighestExitCode() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        RunResult res = batch(cli, """
+                # comment
+                echo a b
+
+                echo --exit 3 c
+                echo d
+                """, 1);
+        assertEquals("a|b\nc\nd\n", res.out());
+        assertEquals(3, res.exitCode());
+    }
+
+    @Test
+    void nulDelimitedRecordsMayContainNewlines() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        RunResult res = batch(cli, "echo 'a\nb'\0echo c\0", 1);
+        assertEquals("a\nb\nc\n", res.out());
+        assertEquals(0, res.exitCode());
+    }
+
+    @Test
+    void unterminatedQuoteInFirstLineFallsBackToNewlines() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        RunResult res = batch(cli, "echo 'open\necho b\r\n", 1);
+        assertEquals("b\n", res.out());
+        assertThat(res.err()).contains("Error: line 1: Unterminated single quote");
+        assertEquals(2, res.exitCode());
+    }
+
+    @Test
+    void failingLinesAreReportedWithoutStoppingTheBatch() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        RunResult res = batch(cli, "echo 'open\necho --unknown x\necho ok\n", 1);
+        assertEquals("ok\n", res.out());
+        assertThat(res.err()).contains("Error: line 1: Unterminated single quote", "--unknown");
+        assertEquals(2, res.exitCode());
+    }
+
+    @Test
+    void parallelBatchKeepsLineOrder() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        String input = IntStream.range(0, 200).mapToObj(i -> "echo " + i).collect(Collectors.joining("\n"));
+        RunResult res = batch(cli, input, 8);
+        String expected = IntStream.range(0, 200).mapToObj(i -> i + "\n").collect(Collectors.joining());
+        assertEquals(expected, res.out());
+        assertEquals(0, res.exitCode());
+    }
+
+    @Test
+    void batchOptionRunsFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("commands.txt");
+        Files.writeString(file, "echo a\necho --exit 4 b\n");
+        var builder = FemtoCli.builder().commandConfig(c -> c.batchOption = true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exitCode = builder.run(new Tool(), new PrintStream(out, true), System.err, "--batch", file.toString());
+        assertEquals("a\nb\n", out.toString());
+        assertEquals(4, exitCode);
+
+        RunResult missing = builder.runCaptured(new Tool(), "--batch=" + dir.resolve("missing.txt"));
+        assertEquals(1, missing.exitCode());
+        assertThat(missing.err()).contains("Cannot read batch file");
+    }
+
+    @Test
+    void runsEachLineBeforeReadingTheNext() throws IOException {
+        CompiledCli cli = FemtoCli.builder().build(Tool.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<String> outputBeforeSecondLine = new ArrayList<>();
+        Reader input = new Reader() {
+            final String[] chunks = {"echo a\n", "echo b\n"};
+            int next;
+
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                if (next == 1) outputBeforeSecondLine.add(out.toString());
+                if (next == chunks.length) return -1;
+                String chunk = chunks[next++];
+                chunk.getChars(0, chunk.length(), buffer, off);
+                return chunk.length();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertEquals(0, cli.runBatch(input, new PrintStream(out, true), System.err, 1));
+        assertEquals(List.of("a\n"), outputBeforeSecondLine);
+        assertEquals("a\nb\n", out.toString());
+    }
+
+    @Command(name = "configured")
+    static class Configured implements Runnable {
+        Configured(String ignored) {
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void batchOptionRequiresNoArgConstructorOnlyForBatches() {
+        var builder = FemtoCli.builder().commandConfig(c -> c.batchOption = true);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> builder.runCaptured(new Configured("x"), "--batch", "commands.txt"));
+        assertThat(ex.getMessage()).contains("requires a no-arg constructor in " + Configured.class.getName());
+
+        RunResult res = builder.runCaptured(new Configured("x"));
+        assertEquals(0, res.exitCode(), res.err());
+    }
+
+    @Test
+    void batchOptionIsOffByDefault() {
+        RunResult res = FemtoCli.runCaptured(new Tool(), "--batch", "commands.txt");
+        assertEquals(2, res.exitCode());
+    }
+}
@@ -0,0 +1,53 @@
+package me.bechberger.femtocli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BitsTest {
+
+    @Test
+    void setGetAndClearAcrossWords() {
+        long[] bits = Bits.of(130);
+        assertEquals(3, bits.length);
+        Bits.set(bits, 0);
+        Bits.set(bits, 64);
+        Bits.set(bits, 129);
+        assertThat(Bits.get(bits, 64)).isTrue();
+        assertThat(Bits.get(bits, 63)).isFalse();
+        Bits.clear(bits, 64);
+        assertThat(Bits.get(bits, 64)).isFalse();
+        assertThat(Bits.get(bits, 129)).isTrue();
+    }
+
+    @Test
+    void nextAndFirstMissingScanInIndexOrder() {
+        long[] bits = Bits.of(200);
+        Bits.set(bits, 3);
+        Bits.set(bits, 70);
+        Bits.set(bits, 199);
+        assertEquals(3, Bits.next(bits, 0));
+        assertEquals(70, Bits.next(bits, 4));
+        assertEquals(199, Bits.next(bits, 71));
+        assertEquals(-1, Bits.next(bits, 200));
+
+        long[] present = Bits.of(200);
+        Bits.set(present, 3);
+        assertEquals(70, Bits.firstMissing(bits, present));
+        Bits.set(present, 70);
+        Bits.set(present, 199);
+        assertEquals(-1, Bits.firstMissing(bits, present));
+    }
+
+    @Test
+    void intersects() {
+        long[] a = Bits.of(100);
+        long[] b = Bits.of(100);
+        Bits.set(a, 80);
+        Bits.set(b, 81);
+        assertThat(Bits.intersects(a, b)).isFalse();
+        Bits.set(b, 80);
+        assertThat(Bits.intersects(a, b)).isTrue();
+    }
+}
@@ -0,0 +1,162 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureModeTest {
+
+    @Command(name = "echo", mixinStandardHelpOptions = true)
+    static class Echo implements Runnable {
+        @Parameters
+        String text;
+
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.out().println(text);
+            spec.err().println("err:" + text);
+        }
+    }
+
+    @Command(name = "leaky")
+    static class Leaky implements Runnable {
+        @Override
+        public void run() {
+            System.out.println("leak");
+        }
+    }
+
+    /** Leaks before and/or after a nested strict run of {@link Echo}. */
+    @Command(name = "nesting")
+    static class Nesting implements Runnable {
+        @Parameters
+        String leak;
+
+        @Override
+        public void run() {
+            if (leak.equals("before")) System.out.println("leak");
+            FemtoCli.builder().captureMode(CaptureMode.STRICT).runCaptured(new Echo(), "inner");
+            if (leak.equals("after")) System.out.println("leak");
+        }
+    }
+
+    /** Runs {@code action} with {@link System#out} writing to a buffer, so that leaks don't end up in the build output. */
+    private static String withSystemOutCaptured(Executable action) throws Throwable {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+        try {
+            action.execute();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString();
+    }
+
+    /** Blocks until all parties are inside run(), which only succeeds if captured runs overlap. */
+    @Command(name = "barrier")
+    static class Barrier implements Runnable {
+        static volatile CountDownLatch latch;
+
+        Spec spec;
+
+        @Override
+        public void run() {
+            latch.countDown();
+            try {
+                spec.out().print(latch.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    void specModeCapturesSpecStreamsAndFemtoCliOutput() {
+        FemtoCli.Builder builder = FemtoCli.builder().captureMode(CaptureMode.SPEC);
+        RunResult res = builder.runCaptured(new Echo(), "hi");
+        assertEquals(0, res.exitCode());
+        assertEquals("hi", res.out().trim());
+        assertEquals("err:hi", res.err().trim());
+
+        assertThat(builder.runCaptured(new Echo(), "--help").out()).startsWith("Usage: echo");
+        assertThat(builder.runCaptured(new Echo(), "--nope").err()).contains("Unknown option: --nope");
+    }
+
+    @Test
+    void specModeLeavesSystemStreamsAlone() throws Throwable {
+        String leaked = withSystemOutCaptured(() -> {
+            PrintStream before = System.out;
+            RunResult res = FemtoCli.builder().captureMode(CaptureMode.SPEC).runCaptured(new Leaky());
+            assertEquals("", res.out());
+            assertSame(before, System.out);
+        });
+        assertEquals("leak", leaked.trim());
+    }
+
+    @Test
+    void specModeRunsConcurrently() throws Exception {
+        int parties = 4;
+        Barrier.latch = new CountDownLatch(parties);
+        CompiledCli cli = FemtoCli.builder().captureMode(CaptureMode.SPEC).build(Barrier.class);
+        ExecutorService pool = Executors.newFixedThreadPool(parties);
+        try {
+            List<Future<RunResult>> results = new ArrayList<>();
+            for (int i = 0; i < parties; i++) results.add(pool.submit(() -> cli.runCaptured()));
+            for (Future<RunResult> f : results) {
+                assertEquals("true", f.get(20, TimeUnit.SECONDS).out());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void strictModeRejectsDirectSystemOutWrites() throws Throwable {
+        withSystemOutCaptured(() -> {
+            PrintStream before = System.out;
+            FemtoCli.Builder builder = FemtoCli.builder().captureMode(CaptureMode.STRICT);
+
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () -> builder.runCaptured(new Leaky()));
+            assertThat(ex.getMessage()).contains("System.out");
+            assertSame(before, System.out);
+
+            RunResult ok = builder.runCaptured(new Echo(), "fine");
+            assertEquals("fine", ok.out().trim());
+            assertTrue(ok.err().contains("err:fine"));
+            assertSame(before, System.out);
+        });
+    }
+
+    @Test
+    void nestedStrictRunsKeepWatchingTheOuterRun() throws Throwable {
+        withSystemOutCaptured(() -> {
+            FemtoCli.Builder builder = FemtoCli.builder().captureMode(CaptureMode.STRICT);
+            for (String leak : List.of("before", "after")) {
+                IllegalStateException ex = assertThrows(IllegalStateException.class,
+                        () -> builder.runCaptured(new Nesting(), leak), leak);
+                assertThat(ex.getMessage()).contains(Nesting.class.getName(), "System.out");
+            }
+            assertEquals(0, builder.runCaptured(new Nesting(), "none").exitCode());
+        });
+    }
+}
@@ -0,0 +1,300 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Mixin;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The per-class model template is shared between command instances, while bound models
+ * always write into the instance (and mixins) they were created for.
+ */
+class CommandModelCacheTest {
+
+    static class Common {
+        @Option(names = "--verbose")
+        boolean verbose;
+    }
+
+    static class ExtendedCommon extends Common {
+        @Option(names = "--extra")
+        int extra;
+    }
+
+    @Command(name = "cmd")
+    static class Cmd implements Runnable {
+        @Mixin
+        Common common;
+
+        @Option(names = "--count", defaultValue = "1")
+        int count;
+
+        @Parameters(index = "0", arity = "0..1")
+        String name;
+
+        Spec spec;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void templateIsSharedBetweenInstances() throws Exception {
+        CommandModel first = CommandModel.of(new Cmd());
+        CommandModel second = CommandModel.of(new Cmd());
+
+        assertSame(first.template, second.template);
+        assertSame(first.options, second.options);
+        assertNotSame(first.holders[0], second.holders[0]);
+        assertNotSame(first.holders[1], second.holders[1]);
+    }
+
+    @Test
+    void repeatedRunsBindToTheirOwnInstance() {
+        Cmd a = new Cmd();
+        Cmd b = new Cmd();
+
+        assertEquals(0, FemtoCli.runCaptured(a, "--verbose", "--count", "5", "x").exitCode());
+        assertEquals(0, FemtoCli.runCaptured(b).exitCode());
+
+        assertThat(a.common.verbose).isTrue();
+        assertEquals(5, a.count);
+        assertEquals("x", a.name);
+        assertThat(b.common.verbose).isFalse();
+        assertEquals(1, b.count);
+        assertThat(b.name).isNull();
+        assertNotSame(a.spec, b.spec);
+        assertSame(b, b.spec.command());
+    }
+
+    @Test
+    void preassignedMixinSubtypeContributesItsOptions() {
+        Cmd cmd = new Cmd();
+        ExtendedCommon extended = new ExtendedCommon();
+        cmd.common = extended;
+
+        RunResult res = FemtoCli.runCaptured(cmd, "--extra", "3", "--verbose");
+
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(3, extended.extra);
+        assertThat(extended.verbose).isTrue();
+    }
+
+    @Command(name = "agent")
+    static class AgentCmd implements Runnable {
+        @Mixin
+        Common common;
+
+        @Option(names = {"-c", "--count"})
+        int count;
+
+        @Option(names = {"-x", "--x-ray"})
+        boolean xRay;
+
+        @Option(names = "--x")
+        String x;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void bareOptionIndexMapsStrippedNames() {
+        CommandModel.Template template = CommandModel.template(AgentCmd.class);
+
+        assertEquals(List.of("--count"), template.bareOptions.get("count"));
+        assertEquals(List.of("-c"), template.bareOptions.get("c"));
+        assertEquals(List.of("-x", "--x"), template.bareOptions.get("x"));
+        assertEquals(List.of("--verbose"), template.bareBooleanOptions.get("verbose"));
+        assertEquals(List.of("-x"), template.bareBooleanOptions.get("x"));
+        assertThat(template.bareBooleanOptions).doesNotContainKey("count");
+
+        AgentCmd cmd = new AgentCmd();
+        RunResult res = FemtoCli.runAgentCaptured(cmd, "count=3,verbose,x-ray");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(3, cmd.count);
+        assertThat(cmd.common.verbose).isTrue();
+        assertThat(cmd.xRay).isTrue();
+    }
+
+    static final AtomicInteger VERIFICATIONS = new AtomicInteger();
+
+    public static class CountingVerifier implements Verifier<Integer> {
+        @Override
+        public void verify(Integer value) {
+            VERIFICATIONS.incrementAndGet();
+        }
+    }
+
+    @Command(name = "defaults")
+    static class Defaults implements Runnable {
+        @Option(names = "--level", defaultValue = "4", verifier = CountingVerifier.class)
+        int level;
+
+        @Option(names = "--tags", defaultValue = "a,b", split = ",")
+        List<String> tags;
+
+        @Option(names = "--sizes", defaultValue = "1,2", split = ",")
+        int[] sizes;
+
+        @Option(names = "--bad", defaultValue = "x")
+        int bad;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void immutableDefaultsAreConvertedAndVerifiedOnce() {
+        CommandModel.Template template = CommandModel.template(Defaults.class);
+        VERIFICATIONS.set(0);
+        for (int i = 0; i < 3; i++) {
+            Defaults cmd = new Defaults();
+            FemtoCli.parse(cmd, "--bad", "1");
+            assertEquals(4, cmd.level);
+        }
+        assertEquals(0, VERIFICATIONS.get());
+        assertEquals(4, template.optionsByName.get("--level").defaultValue);
+        assertSame(FemtoCli.UNCACHED, template.optionsByName.get("--bad").defaultValue);
+        assertThat(FemtoCli.runCaptured(new Defaults()).err()).contains("Invalid value for --bad");
+    }
+
+    @Test
+    void cachedCollectionDefaultsAreCopiedForEachParse() {
+        Defaults first = new Defaults();
+        FemtoCli.parse(first, "--bad", "1");
+        first.tags.add("c");
+        first.sizes[0] = 9;
+
+        Defaults second = new Defaults();
+        FemtoCli.parse(second, "--bad", "1");
+        assertEquals(List.of("a", "b"), second.tags);
+        assertThat(second.sizes).containsExactly(1, 2);
+        assertThat(second.tags).isInstanceOf(ArrayList.class);
+    }
+
+    @Test
+    void registeredConverterTakesPrecedenceOverCachedDefault() {
+        Defaults cmd = new Defaults();
+        RunResult res = FemtoCli.builder()
+                .registerType(int.class, s -> Integer.parseInt(s) * 10)
+                .runCaptured(cmd, "--bad", "1");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(40, cmd.level);
+        assertThat(cmd.sizes).containsExactly(10, 20);
+    }
+
+    @Command(name = "constraints")
+    static class Constraints implements Runnable {
+        @Option(names = "--in", required = true)
+        String in;
+
+        @Option(names = {"-q", "--quiet"}, prevents = {"--verbose", "-q"})
+        boolean quiet;
+
+        @Option(names = "--verbose", defaultValue = "false")
+        boolean verbose;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "broken")
+    static class BrokenPrevents implements Runnable {
+        @Option(names = "-a", prevents = "-b")
+        boolean a;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void validationMasksArePrecompiled() {
+        CommandModel.Template template = CommandModel.template(Constraints.class);
+        int in = template.optionsByName.get("--in").ordinal;
+        int quiet = template.optionsByName.get("-q").ordinal;
+        int verbose = template.optionsByName.get("--verbose").ordinal;
+
+        assertEquals(in, Bits.next(template.requiredOptions, 0));
+        assertEquals(-1, Bits.next(template.requiredOptions, in + 1));
+        assertThat(Bits.get(template.defaultOptions, verbose)).isTrue();
+        assertThat(Bits.get(template.preventedOptions[quiet], verbose)).isTrue();
+        // the self-reference is dropped
+        assertThat(Bits.get(template.preventedOptions[quiet], quiet)).isFalse();
+        assertThat(template.preventedOptions[verbose]).isNull();
+        assertThat(template.invalidPrevents).isNull();
+
+        assertThat(FemtoCli.runCaptured(new Constraints(), "-q").err()).contains("Missing required option: --in");
+        assertThat(FemtoCli.runCaptured(new Constraints(), "--in", "x", "-q", "--verbose").err())
+                .contains("Options --quiet and --verbose cannot be used together");
+        assertEquals(0, FemtoCli.runCaptured(new Constraints(), "--in", "x", "-q").exitCode());
+    }
+
+    @Command(name = "ordered")
+    static class Ordered implements Runnable {
+        @Option(names = "--in", required = true)
+        String in;
+
+        @Option(names = "--count")
+        int count;
+
+        @Option(names = "--sizes", split = ",")
+        List<Integer> sizes;
+
+        @Parameters(arity = "0..1")
+        Integer number;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void invalidValuesAreReportedBeforeMissingRequiredOptions() {
+        assertThat(FemtoCli.runCaptured(new Ordered(), "--count", "x").err())
+                .contains("Invalid value for --count").doesNotContain("Missing required option");
+        assertThat(FemtoCli.runCaptured(new Ordered(), "--sizes", "1,x").err())
+                .contains("Invalid value for --sizes").doesNotContain("Missing required option");
+        assertThat(FemtoCli.runCaptured(new Ordered(), "x").err())
+                .contains("Invalid value for <number>").doesNotContain("Missing required option");
+        // missing required options come before conflicts
+        assertThat(FemtoCli.runCaptured(new Constraints(), "-q", "--verbose").err())
+                .contains("Missing required option: --in").doesNotContain("cannot be used together");
+    }
+
+    @Test
+    void ordinalsFollowTheFinalOptionList() {
+        CommandModel.Template template = CommandModel.template(Cmd.class);
+        for (int i = 0; i < template.options.size(); i++) {
+            FemtoCli.OptionMeta meta = template.options.get(i);
+            assertEquals(i, meta.ordinal);
+            assertSame(meta, template.optionByField.get(meta.field));
+            for (String name : meta.opt.names()) assertSame(meta, template.optionsByName.get(name));
+        }
+    }
+
+    @Test
+    void unknownPreventsReferenceIsReportedOnParse() {
+        assertThat(CommandModel.template(BrokenPrevents.class).invalidPrevents)
+                .isEqualTo("Option -a declares prevents={\"-b\"} but no such option exists");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> FemtoCli.runCaptured(new BrokenPrevents()));
+        assertThat(e.getMessage()).contains("no such option");
+    }
+}
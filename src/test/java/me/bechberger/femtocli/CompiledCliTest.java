@@ -0,0 +1,140 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledCliTest {
+
+    @Command(name = "admin", subcommands = {Greet.class, Hidden.class})
+    static class Admin implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "greet")
+    static class Greet implements Callable<Integer> {
+        @Option(names = "--times", defaultValue = "1")
+        int times;
+
+        @Parameters
+        String name;
+
+        Spec spec;
+
+        @Override
+        public Integer call() {
+            spec.out().println(("hi " + name + " ").repeat(times).trim());
+            return times;
+        }
+    }
+
+    @Command(name = "hidden")
+    static class Hidden implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "broken")
+    static class Broken implements Runnable {
+        @Option(names = "--x")
+        final int x = 0;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "root", subcommands = Broken.class)
+    static class BrokenRoot implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void runsWithFreshRootPerInvocation() {
+        CompiledCli cli = FemtoCli.builder().build(Admin.class);
+        RunResult first = cli.runCaptured("greet", "--times", "2", "bob");
+        assertEquals(2, first.exitCode(), first.err());
+        assertEquals("hi bob hi bob", first.out().trim());
+
+        RunResult second = cli.runCaptured("greet", "alice");
+        assertEquals(1, second.exitCode(), second.err());
+        assertEquals("hi alice", second.out().trim());
+    }
+
+    @Test
+    void parseReturnsSelectedSubcommand() {
+        CompiledCli cli = FemtoCli.builder().build(Admin.class);
+        Greet greet = assertInstanceOf(Greet.class, cli.parse("greet", "--times", "3", "x"));
+        assertEquals(3, greet.times);
+        assertEquals("x", greet.name);
+        assertEquals(Greet.class, assertInstanceOf(Greet.class, cli.parseAgent("greet,x")).getClass());
+    }
+
+    @Test
+    void builderChangesAfterBuildDoNotLeakIn() {
+        FemtoCli.Builder builder = FemtoCli.builder().commandConfig(c -> c.version = "1.0");
+        CompiledCli cli = builder.build(Admin.class);
+        builder.removeCommands(Greet.class).commandConfig(c -> c.version = "2.0");
+
+        assertEquals(1, cli.runCaptured("greet", "x").exitCode());
+        assertThat(cli.runCaptured("--version").out()).contains("1.0");
+    }
+
+    @Test
+    void removedCommandsAreHonoured() {
+        CompiledCli cli = FemtoCli.builder().removeCommands(Hidden.class).build(Admin.class);
+        RunResult res = cli.runCaptured("hidden");
+        assertEquals(2, res.exitCode());
+        assertThat(cli.runCaptured("--help").out()).contains("greet").doesNotContain("hidden");
+    }
+
+    @Test
+    void misconfiguredSubcommandsFailAtBuildTime() {
+        assertThrows(FieldIsFinalException.class, () -> FemtoCli.builder().build(BrokenRoot.class));
+        // removed commands are not validated
+        FemtoCli.builder().removeCommands(Broken.class).build(BrokenRoot.class);
+    }
+
+    @Test
+    void concurrentRunsAreIndependent() throws Exception {
+        CompiledCli cli = FemtoCli.builder().build(Admin.class);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String name = "n" + i;
+                results.add(pool.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    PrintStream ps = new PrintStream(out, true);
+                    int exit = cli.run(ps, ps, "greet", "--times", "1", name);
+                    return exit + ":" + out.toString().trim();
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("1:hi n" + i, results.get(i).get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
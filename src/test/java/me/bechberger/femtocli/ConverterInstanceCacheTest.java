@@ -0,0 +1,110 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import me.bechberger.femtocli.annotations.Stateful;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Converter and verifier classes are instantiated once and reused, unless marked {@link Stateful}.
+ */
+class ConverterInstanceCacheTest {
+
+    static final AtomicInteger sharedCreated = new AtomicInteger();
+    static final AtomicInteger statefulCreated = new AtomicInteger();
+    static final AtomicInteger verifierCreated = new AtomicInteger();
+
+    public static class SharedConverter implements TypeConverter<Integer> {
+        public SharedConverter() {
+            sharedCreated.incrementAndGet();
+        }
+
+        @Override
+        public Integer convert(String value) {
+            return Integer.parseInt(value);
+        }
+    }
+
+    @Stateful
+    public static class StatefulConverter implements TypeConverter<String> {
+        private int calls;
+
+        public StatefulConverter() {
+            statefulCreated.incrementAndGet();
+        }
+
+        @Override
+        public String convert(String value) {
+            return value + "#" + (++calls);
+        }
+    }
+
+    public static class PositiveVerifier implements Verifier<Integer> {
+        public PositiveVerifier() {
+            verifierCreated.incrementAndGet();
+        }
+
+        @Override
+        public void verify(Integer value) {
+            if (value <= 0) throw new VerifierException("must be positive");
+        }
+    }
+
+    @Command(name = "cmd")
+    static class Cmd implements Runnable {
+        @Option(names = "--n", split = ",", converter = SharedConverter.class, verifier = PositiveVerifier.class)
+        List<Integer> numbers;
+
+        @Parameters(arity = "0..*", converter = StatefulConverter.class)
+        List<String> words;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void statelessConvertersAndVerifiersAreCreatedOnce() {
+        Cmd first = new Cmd();
+        RunResult res = FemtoCli.runCaptured(first, "--n", "1,2,3,4");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(List.of(1, 2, 3, 4), first.numbers);
+
+        for (int i = 0; i < 3; i++) {
+            Cmd next = new Cmd();
+            FemtoCli.runCaptured(next, "--n", "5,6");
+            assertEquals(List.of(5, 6), next.numbers);
+        }
+        assertEquals(1, sharedCreated.get());
+        assertEquals(1, verifierCreated.get());
+    }
+
+    @Test
+    void statefulConvertersAreCreatedOncePerRun() {
+        int before = statefulCreated.get();
+        Cmd first = new Cmd();
+        RunResult res = FemtoCli.runCaptured(first, "a", "b", "c");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(List.of("a#1", "b#2", "c#3"), first.words);
+        assertEquals(before + 1, statefulCreated.get());
+
+        Cmd second = new Cmd();
+        FemtoCli.runCaptured(second, "d", "e");
+        assertEquals(List.of("d#1", "e#2"), second.words);
+        assertEquals(before + 2, statefulCreated.get());
+    }
+
+    @Test
+    void sharedVerifierStillRejectsValues() {
+        RunResult res = FemtoCli.runCaptured(new Cmd(), "--n", "1,-2");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains("must be positive");
+    }
+}
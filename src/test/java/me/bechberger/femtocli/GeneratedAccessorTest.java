@@ -0,0 +1,112 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FemtoCli picks up {@code <Class>_FemtoCliAccessor} classes (normally generated by femtocli-processor)
+ * that are marked in {@code META-INF/femtocli/accessors/} and uses them instead of reflection for the fields
+ * they list.
+ */
+class GeneratedAccessorTest {
+
+    @Command(name = "cmd")
+    static class Cmd implements Runnable {
+        @Option(names = "--count", defaultValue = "1")
+        int count;
+
+        @Option(names = "--name")
+        private String name;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void listedFieldsGoThroughTheAccessor() {
+        Cmd cmd = new Cmd();
+        int before = GeneratedAccessorTest$$Cmd_FemtoCliAccessor.sets;
+
+        RunResult res = FemtoCli.runCaptured(cmd, "--count", "4", "--name", "x");
+
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(4, cmd.count);
+        assertEquals("x", cmd.name);
+        assertTrue(GeneratedAccessorTest$$Cmd_FemtoCliAccessor.sets > before);
+    }
+
+    @Command(name = "unindexed")
+    static class Unindexed implements Runnable {
+        @Option(names = "--count")
+        int count;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void accessorsWithoutIndexEntryAreNotLookedUp() {
+        Unindexed cmd = new Unindexed();
+        int before = GeneratedAccessorTest$$Unindexed_FemtoCliAccessor.sets;
+
+        RunResult res = FemtoCli.runCaptured(cmd, "--count", "4");
+
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(4, cmd.count);
+        assertEquals(before, GeneratedAccessorTest$$Unindexed_FemtoCliAccessor.sets);
+    }
+
+    @Test
+    void accessorNameDoublesNestingSeparators() {
+        assertEquals("me.bechberger.femtocli.GeneratedAccessorTest$$Cmd_FemtoCliAccessor",
+                FieldAccess.accessorName(Cmd.class));
+    }
+}
+
+/** Hand-written stand-in for a generated accessor; only covers {@code count}. */
+class GeneratedAccessorTest$$Cmd_FemtoCliAccessor implements GeneratedAccessor {
+    static volatile int sets;
+
+    @Override
+    public String[] fieldNames() {
+        return new String[]{"count"};
+    }
+
+    @Override
+    public Object get(Object target, int index) {
+        return ((GeneratedAccessorTest.Cmd) target).count;
+    }
+
+    @Override
+    public void set(Object target, int index, Object value) {
+        sets++;
+        ((GeneratedAccessorTest.Cmd) target).count = (Integer) value;
+    }
+}
+
+/** Accessor without an index entry, which FemtoCli must not use. */
+class GeneratedAccessorTest$$Unindexed_FemtoCliAccessor implements GeneratedAccessor {
+    static volatile int sets;
+
+    @Override
+    public String[] fieldNames() {
+        return new String[]{"count"};
+    }
+
+    @Override
+    public Object get(Object target, int index) {
+        return ((GeneratedAccessorTest.Unindexed) target).count;
+    }
+
+    @Override
+    public void set(Object target, int index, Object value) {
+        sets++;
+        ((GeneratedAccessorTest.Unindexed) target).count = (Integer) value;
+    }
+}
@@ -0,0 +1,108 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Mixin;
+import me.bechberger.femtocli.annotations.Option;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Help is written in one call and cached per command class, path, help settings and agent mode.
+ */
+class HelpCacheTest {
+
+    static class Common {
+        @Option(names = "--verbose", description = "Verbose output")
+        boolean verbose;
+    }
+
+    static class ExtendedCommon extends Common {
+        @Option(names = "--extra", description = "Extra option")
+        int extra;
+    }
+
+    @Command(name = "cmd", description = "A command", subcommands = {Sub.class})
+    static class Cmd implements Runnable {
+        @Mixin
+        Common common;
+
+        @Option(names = "--count", defaultValue = "1", description = "Count")
+        int count;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "sub", description = "A subcommand")
+    static class Sub implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    /** Counts the writes that reach the underlying stream. */
+    static final class CountingStream extends OutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int writes;
+
+        @Override
+        public void write(int b) {
+            writes++;
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writes++;
+            bytes.write(b, off, len);
+        }
+    }
+
+    @Test
+    void helpIsWrittenInOneCall() {
+        CountingStream stream = new CountingStream();
+        FemtoCli.run(new Cmd(), new PrintStream(stream, true), System.err, "--help");
+        assertEquals(1, stream.writes);
+        assertThat(stream.bytes.toString()).contains("Usage: cmd", "--count", "--verbose", "sub");
+    }
+
+    @Test
+    void helpIsCachedPerPathSettingsAndAgentMode() {
+        CommandConfig config = new CommandConfig();
+        String first = HelpRenderer.text(new Cmd(), "cmd", config, false, Set.of());
+        assertSame(first, HelpRenderer.text(new Cmd(), "cmd", new CommandConfig(), false, Set.of()));
+
+        assertNotEquals(first, HelpRenderer.text(new Cmd(), "tool cmd", config, false, Set.of()));
+        assertNotEquals(first, HelpRenderer.text(new Cmd(), "cmd", config, true, Set.of()));
+        assertNotEquals(first, HelpRenderer.text(new Cmd(), "cmd", config, false, Set.of(Sub.class)));
+        config.showDefaultValuesInHelp = false;
+        assertNotEquals(first, HelpRenderer.text(new Cmd(), "cmd", config, false, Set.of()));
+    }
+
+    @Test
+    void usageErrorsPrintTheCachedHelp() {
+        String help = FemtoCli.runCaptured(new Cmd(), "--help").out();
+        RunResult error = FemtoCli.runCaptured(new Cmd(), "--unknown");
+        assertEquals(2, error.exitCode());
+        assertThat(error.err()).endsWith(help);
+    }
+
+    @Test
+    void subtypeMixinsAreNotCached() {
+        Cmd cmd = new Cmd();
+        cmd.common = new ExtendedCommon();
+        assertThat(HelpRenderer.text(cmd, "cmd", new CommandConfig(), false, Set.of())).contains("--extra");
+        assertThat(HelpRenderer.text(new Cmd(), "cmd", new CommandConfig(), false, Set.of())).doesNotContain("--extra");
+        assertThat(FemtoCli.runCaptured(new Cmd(), "--help").out()).doesNotContain("--extra");
+    }
+}
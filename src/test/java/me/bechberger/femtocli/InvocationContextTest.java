@@ -0,0 +1,87 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routing state lives in a per-invocation context; the static {@link FemtoCli#usage(Object, PrintStream)}
+ * still sees the running invocation when called from a command.
+ */
+class InvocationContextTest {
+
+    @Command(name = "tool", subcommands = {Sub.class, Extra.class}, version = "1.2")
+    static class Tool implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "sub", subcommands = Leaf.class, mixinStandardHelpOptions = true)
+    static class Sub implements Runnable {
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.usage();
+        }
+    }
+
+    @Command(name = "leaf")
+    static class Leaf implements Runnable {
+        @Override
+        public void run() {
+            FemtoCli.usage(this, System.out);
+        }
+    }
+
+    @Command(name = "extra")
+    static class Extra implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void staticUsageInsideCommandUsesInvocationPath() {
+        RunResult res = FemtoCli.runCaptured(new Tool(), "sub", "leaf");
+        assertEquals(0, res.exitCode(), res.err());
+        assertThat(res.out()).startsWith("Usage: tool sub leaf");
+    }
+
+    @Test
+    void staticUsageOutsideInvocationUsesDefaults() {
+        FemtoCli.runCaptured(new Tool(), "sub", "leaf");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FemtoCli.usage(new Leaf(), new PrintStream(bytes, true));
+        assertThat(bytes.toString()).startsWith("Usage: leaf");
+    }
+
+    @Test
+    void specUsageHidesRemovedCommands() {
+        RunResult res = FemtoCli.builder().removeCommands(Leaf.class).runCaptured(new Tool(), "sub");
+        assertEquals(0, res.exitCode(), res.err());
+        assertThat(res.out()).startsWith("Usage: tool sub").doesNotContain("leaf");
+    }
+
+    @Test
+    void nestedRunsDoNotDisturbTheOuterInvocation() {
+        @Command(name = "outer")
+        class Outer implements Runnable {
+            @Override
+            public void run() {
+                FemtoCli.run(new Tool(), new PrintStream(new ByteArrayOutputStream()), System.err, "sub", "leaf");
+                FemtoCli.usage(this, System.out);
+            }
+        }
+        RunResult res = FemtoCli.runCaptured(new Outer());
+        assertEquals(0, res.exitCode(), res.err());
+        assertThat(res.out().lines().filter(l -> l.startsWith("Usage:")))
+                .containsExactly("Usage: tool sub leaf [-hV]", "Usage: outer [-hV]");
+    }
+}
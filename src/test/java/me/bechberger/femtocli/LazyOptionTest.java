@@ -0,0 +1,132 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyOptionTest {
+
+    enum Mode { FAST, SLOW }
+
+    static final AtomicInteger CONVERSIONS = new AtomicInteger();
+
+    @Command(name = "lazy", mixinStandardHelpOptions = true)
+    static class Lazy implements Callable<Integer> {
+        @Option(names = "--count", defaultValue = "3", description = "Count")
+        Supplier<Integer> count;
+
+        @Option(names = "--mode", defaultValue = "FAST", description = "Mode, one of ${COMPLETION-CANDIDATES}")
+        Supplier<Mode> mode;
+
+        @Option(names = "--timeout", description = "Timeout")
+        Supplier<Duration> timeout;
+
+        @Option(names = "--tracked", converterMethod = "track")
+        Supplier<String> tracked;
+
+        @Parameters(arity = "0..1", description = "Name")
+        Supplier<String> name;
+
+        boolean readCount = true;
+
+        String track(String value) {
+            CONVERSIONS.incrementAndGet();
+            return value.toUpperCase();
+        }
+
+        @Override
+        public Integer call() {
+            return readCount ? count.get() : 0;
+        }
+    }
+
+    @Command(name = "lazy", mixinStandardHelpOptions = true)
+    static class Eager implements Runnable {
+        @Option(names = "--count", defaultValue = "3", description = "Count")
+        Integer count;
+
+        @Option(names = "--mode", defaultValue = "FAST", description = "Mode, one of ${COMPLETION-CANDIDATES}")
+        Mode mode;
+
+        @Option(names = "--timeout", description = "Timeout")
+        Duration timeout;
+
+        @Option(names = "--tracked")
+        String tracked;
+
+        @Parameters(arity = "0..1", description = "Name")
+        String name;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void convertsOnAccess() {
+        Lazy cmd = new Lazy();
+        RunResult res = FemtoCli.runCaptured(cmd, "--count", "7", "--timeout", "2s", "--mode", "slow", "x");
+        assertEquals(7, res.exitCode());
+        assertEquals(Duration.ofSeconds(2), cmd.timeout.get());
+        assertEquals(Mode.SLOW, cmd.mode.get());
+        assertEquals("x", cmd.name.get());
+    }
+
+    @Test
+    void defaultValuesAreLazyToo() {
+        Lazy cmd = new Lazy();
+        assertEquals(3, FemtoCli.runCaptured(cmd).exitCode());
+        assertEquals(Mode.FAST, cmd.mode.get());
+        assertThat(cmd.timeout).isNull();
+    }
+
+    @Test
+    void convertsOnceAndMemoizes() {
+        CONVERSIONS.set(0);
+        Lazy cmd = new Lazy();
+        FemtoCli.parse(cmd, "--tracked", "abc");
+        assertEquals(0, CONVERSIONS.get());
+        String first = cmd.tracked.get();
+        assertEquals("ABC", first);
+        assertSame(first, cmd.tracked.get());
+        assertEquals(1, CONVERSIONS.get());
+    }
+
+    @Test
+    void invalidValueIsOnlyReportedWhenRead() {
+        Lazy unread = new Lazy();
+        unread.readCount = false;
+        assertEquals(0, FemtoCli.runCaptured(unread, "--count", "x").exitCode());
+
+        RunResult res = FemtoCli.runCaptured(new Lazy(), "--count", "x");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).startsWith("Error: Invalid value for --count: For input string: \"x\"").contains("Usage: lazy");
+    }
+
+    @Test
+    void invalidValueInParseModeIsAnIllegalArgumentException() {
+        Lazy cmd = new Lazy();
+        FemtoCli.parse(cmd, "--mode", "medium");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cmd.mode.get());
+        assertThat(e.getMessage()).contains("--mode");
+    }
+
+    @Test
+    void helpIsTheSameAsForEagerOptions() {
+        String lazy = FemtoCli.runCaptured(new Lazy(), "--help").out();
+        String eager = FemtoCli.runCaptured(new Eager(), "--help").out();
+        assertEquals(eager, lazy);
+        assertThat(lazy).contains("Mode, one of FAST, SLOW");
+    }
+}
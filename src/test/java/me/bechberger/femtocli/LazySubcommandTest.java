@@ -0,0 +1,117 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code Root} has an index in {@code src/test/resources/META-INF/femtocli/subcommands}, {@code NoIndex} has none.
+ */
+class LazySubcommandTest {
+
+    static volatile boolean heavyInitialized;
+    static volatile boolean secretInitialized;
+
+    @Command(name = "root", version = "1.0", mixinStandardHelpOptions = true,
+            subcommands = {Eager.class},
+            lazySubcommands = {"me.bechberger.femtocli.LazySubcommandTest$Heavy",
+                    "me.bechberger.femtocli.LazySubcommandTest$Secret"})
+    static class Root implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "eager", description = "Eager command")
+    static class Eager implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "heavy", description = "Heavy command")
+    static class Heavy implements Runnable {
+        static {
+            heavyInitialized = true;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "secret", hidden = true)
+    static class Secret implements Runnable {
+        static {
+            secretInitialized = true;
+        }
+
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.out().println("secret ran");
+        }
+    }
+
+    @Command(name = "no-index", lazySubcommands = {"me.bechberger.femtocli.LazySubcommandTest$Eager"})
+    static class NoIndex implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "broken", lazySubcommands = {"me.bechberger.femtocli.DoesNotExist"})
+    static class Broken implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void helpListsLazySubcommandsFromTheIndexWithoutInitializingThem() {
+        RunResult res = FemtoCli.runCaptured(new Root(), "--help");
+        assertEquals(0, res.exitCode());
+        assertThat(res.out())
+                .contains("eager  Eager command")
+                .contains("heavy  Heavy command (from the index)")
+                .doesNotContain("secret");
+        assertEquals("1.0", FemtoCli.runCaptured(new Root(), "--version").out().strip());
+        assertFalse(heavyInitialized);
+    }
+
+    @Test
+    void lazySubcommandsAreLoadedWhenSelected() {
+        RunResult res = FemtoCli.runCaptured(new Root(), "secret");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals("secret ran", res.out().strip());
+        assertTrue(secretInitialized);
+        assertFalse(heavyInitialized);
+    }
+
+    @Test
+    void removedLazySubcommandsAreIgnored() {
+        RunResult help = FemtoCli.builder().removeCommands(Heavy.class).runCaptured(new Root(), "--help");
+        assertThat(help.out()).doesNotContain("heavy");
+        RunResult run = FemtoCli.builder().removeCommands(Heavy.class).runCaptured(new Root(), "heavy");
+        assertEquals(2, run.exitCode());
+    }
+
+    @Test
+    void withoutIndexTheClassAnnotationIsUsed() {
+        RunResult help = FemtoCli.runCaptured(new NoIndex(), "--help");
+        assertThat(help.out()).contains("eager  Eager command");
+        assertEquals(0, FemtoCli.runCaptured(new NoIndex(), "eager").exitCode());
+    }
+
+    @Test
+    void unknownLazySubcommandClassIsReported() {
+        var e = assertThrows(IllegalArgumentException.class, () -> FemtoCli.runCaptured(new Broken(), "x"));
+        assertThat(e.getMessage()).contains("me.bechberger.femtocli.DoesNotExist");
+    }
+}
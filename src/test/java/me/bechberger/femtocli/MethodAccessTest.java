@@ -0,0 +1,66 @@
+package me.bechberger.femtocli;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Converter and verifier methods are called through cached method handles with the semantics of
+ * {@link Method#invoke}.
+ */
+class MethodAccessTest {
+
+    static class Target {
+        int twice(int value) {
+            return 2 * value;
+        }
+
+        static String upper(String value) {
+            if (value.isEmpty()) throw new IllegalArgumentException("empty");
+            return value.toUpperCase();
+        }
+
+        void check(Object value) throws Exception {
+            throw new Exception("rejected " + value);
+        }
+    }
+
+    private static Method method(String name, Class<?> type) throws NoSuchMethodException {
+        return Target.class.getDeclaredMethod(name, type);
+    }
+
+    @Test
+    void invokesInstanceAndStaticMethods() throws Exception {
+        assertEquals(6, MethodAccess.invoke(method("twice", int.class), new Target(), 3));
+        assertEquals("AB", MethodAccess.invoke(method("upper", String.class), null, "ab"));
+    }
+
+    @Test
+    void widensArgumentsLikeReflection() throws Exception {
+        assertEquals(6, MethodAccess.invoke(method("twice", int.class), new Target(), (short) 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> MethodAccess.invoke(method("twice", int.class), new Target(), null));
+    }
+
+    @Test
+    void wrapsExceptionsOfTheMethod() throws Exception {
+        InvocationTargetException unchecked = assertThrows(InvocationTargetException.class,
+                () -> MethodAccess.invoke(method("upper", String.class), null, ""));
+        assertThat(unchecked.getCause()).isInstanceOf(IllegalArgumentException.class).hasMessage("empty");
+
+        InvocationTargetException checked = assertThrows(InvocationTargetException.class,
+                () -> MethodAccess.invoke(method("check", Object.class), new Target(), 1));
+        assertThat(checked.getCause()).hasMessage("rejected 1");
+    }
+
+    @Test
+    void doesNotWrapFailuresOfTheCallItself() {
+        assertThrows(ClassCastException.class,
+                () -> MethodAccess.invoke(method("twice", int.class), "not a target", 3));
+    }
+}
@@ -0,0 +1,98 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Field writes and converter/verifier calls go through cached method handles but must keep
+ * the semantics of {@code Field.set} and {@code Method.invoke}.
+ */
+class MethodHandleBindingTest {
+
+    /** Returns an Integer, which reflection widens when stored into a long field. */
+    static class IntConverter implements TypeConverter<Integer> {
+        @Override
+        public Integer convert(String value) {
+            return Integer.parseInt(value);
+        }
+    }
+
+    static class StringConverter implements TypeConverter<String> {
+        @Override
+        public String convert(String value) {
+            return value;
+        }
+    }
+
+    @Command(name = "cmd")
+    static class Cmd implements Runnable {
+        @Option(names = "--wide", converter = IntConverter.class)
+        long wide;
+
+        @Option(names = "--static")
+        static int staticOption;
+
+        @Option(names = "--mismatch", converter = StringConverter.class)
+        int mismatch;
+
+        @Option(names = "--even", verifierMethod = "verifyEven")
+        int even;
+
+        @Option(names = "--long", verifierMethod = "verifyLong")
+        int widenedForVerifier;
+
+        void verifyEven(int value) {
+            if (value % 2 != 0) throw new VerifierException("must be even");
+        }
+
+        static void verifyLong(long value) {
+            if (value < 0) throw new VerifierException("must not be negative");
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void primitiveWideningStillWorks() {
+        Cmd cmd = new Cmd();
+        RunResult res = FemtoCli.runCaptured(cmd, "--wide", "7", "--long", "3");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(7L, cmd.wide);
+        assertEquals(3, cmd.widenedForVerifier);
+    }
+
+    @Test
+    void staticOptionFieldsAreWritten() {
+        RunResult res = FemtoCli.runCaptured(new Cmd(), "--static", "5");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(5, Cmd.staticOption);
+    }
+
+    @Test
+    void typeMismatchIsReportedLikeReflection() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> FemtoCli.runCaptured(new Cmd(), "--mismatch", "x"));
+        assertThat(ex.getMessage()).contains("mismatch");
+    }
+
+    @Test
+    void verifierMethodExceptionsBecomeUsageErrors() {
+        RunResult ok = FemtoCli.runCaptured(new Cmd(), "--even", "4");
+        assertEquals(0, ok.exitCode(), ok.err());
+
+        RunResult bad = FemtoCli.runCaptured(new Cmd(), "--even", "3");
+        assertEquals(2, bad.exitCode());
+        assertThat(bad.err()).contains("must be even");
+
+        RunResult widened = FemtoCli.runCaptured(new Cmd(), "--long", "-1");
+        assertEquals(2, widened.exitCode());
+        assertThat(widened.err()).contains("must not be negative");
+    }
+}
@@ -71,6 +71,15 @@ class ParseOnlyTest {
         assertThat(ex.getMessage()).contains("not supported in parse mode");
     }
 
+    @Test
+    void usageErrorsCarryNoStackTrace() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> FemtoCli.parse(new ParseCmd(), "--count", "x", "alice"));
+        assertThat(ex.getMessage()).contains("Invalid value for --count");
+        assertThat(ex.getCause()).isInstanceOf(UsageEx.class);
+        assertEquals(0, ex.getCause().getStackTrace().length);
+    }
+
     @Test
     void builderParseUsesCustomConverter() {
         ParseCmd cmd = new ParseCmd();
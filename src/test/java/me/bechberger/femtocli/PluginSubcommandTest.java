@@ -0,0 +1,98 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The plugin index of {@code Host} is in {@code src/test/resources/META-INF/femtocli/plugins}.
+ */
+class PluginSubcommandTest {
+
+    @Command(name = "host", subcommands = {ListCommand.class}, plugins = true, mixinStandardHelpOptions = true)
+    static class Host implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "closed", subcommands = {ListCommand.class})
+    static class Closed implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "list", description = "List things")
+    static class ListCommand implements Runnable {
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.out().println("declared list");
+        }
+    }
+
+    @Command(name = "status", description = "Show the plugin status", pluginOf = Host.class)
+    static class StatusPlugin implements Runnable {
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.out().println("plugin status");
+        }
+    }
+
+    @Command(name = "list", pluginOf = Host.class)
+    static class ShadowedPlugin implements Runnable {
+        Spec spec;
+
+        @Override
+        public void run() {
+            spec.out().println("plugin list");
+        }
+    }
+
+    @Test
+    void pluginsAreListedAndRoutable() {
+        RunResult help = FemtoCli.runCaptured(new Host(), "--help");
+        assertThat(help.out())
+                .contains("list     List things")
+                .contains("status   Show the plugin status")
+                .contains("missing  Class is not available")
+                .doesNotContain("Shadowed");
+
+        RunResult status = FemtoCli.runCaptured(new Host(), "status");
+        assertEquals(0, status.exitCode(), status.err());
+        assertEquals("plugin status", status.out().strip());
+    }
+
+    @Test
+    void declaredSubcommandsWinOverPlugins() {
+        assertEquals("declared list", FemtoCli.runCaptured(new Host(), "list").out().strip());
+    }
+
+    @Test
+    void removedPluginsAreHiddenAndNotRoutable() {
+        var builder = FemtoCli.builder().removeCommands(StatusPlugin.class);
+        assertThat(builder.runCaptured(new Host(), "--help").out()).doesNotContain("status");
+        assertEquals(2, builder.runCaptured(new Host(), "status").exitCode());
+    }
+
+    @Test
+    void pluginsNeedToBeEnabled() {
+        assertEquals(2, FemtoCli.runCaptured(new Closed(), "status").exitCode());
+    }
+
+    @Test
+    void missingPluginClassIsAUsageErrorWhenSelected() {
+        RunResult res = FemtoCli.runCaptured(new Host(), "missing");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains(
+                "Error: Cannot load plugin subcommand 'missing': class me.bechberger.femtocli.PluginSubcommandTest$Missing not found",
+                "Usage: host");
+        assertEquals(0, FemtoCli.runCaptured(new Host(), "status").exitCode());
+    }
+}
@@ -0,0 +1,100 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@code int[]}, {@code long[]} and {@code double[]} are parsed without boxing; primitive streams collect values like arrays.
+ */
+class PrimitiveArrayBindingTest {
+
+    @Command(name = "arrays")
+    static class Arrays implements Runnable {
+        @Option(names = "--ints", split = ",")
+        int[] ints;
+
+        @Option(names = "--ratios", split = ",", defaultValue = "0.5,1.5")
+        double[] ratios;
+
+        @Option(names = "--positive", verifierMethod = "checkPositive")
+        int[] positive;
+
+        @Parameters
+        long[] offsets;
+
+        @Override
+        public void run() {
+        }
+
+        void checkPositive(Object value) {
+            if ((Integer) value <= 0) throw new VerifierException("must be positive");
+        }
+    }
+
+    @Command(name = "streams")
+    static class Streams implements Runnable {
+        @Option(names = "--id")
+        IntStream ids;
+
+        @Option(names = "--weights", split = ",", defaultValue = "1,2")
+        DoubleStream weights;
+
+        @Parameters
+        LongStream offsets;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void parsesPrimitiveArrays() {
+        Arrays cmd = new Arrays();
+        RunResult res = FemtoCli.runCaptured(cmd, "--ints=1,2,3", "--ints", "4", "10", "20000000000");
+        assertEquals(0, res.exitCode(), res.err());
+        assertArrayEquals(new int[]{1, 2, 3, 4}, cmd.ints);
+        assertArrayEquals(new double[]{0.5, 1.5}, cmd.ratios);
+        assertArrayEquals(new long[]{10, 20000000000L}, cmd.offsets);
+    }
+
+    @Test
+    void reportsInvalidValuesLikeOtherTypes() {
+        RunResult res = FemtoCli.runCaptured(new Arrays(), "--ints=1,x");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains("Invalid value for --ints: For input string: \"x\"");
+    }
+
+    @Test
+    void verifiersAndCustomConvertersStillApply() {
+        RunResult res = FemtoCli.runCaptured(new Arrays(), "--positive", "1", "--positive", "-1");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains("must be positive");
+
+        Arrays cmd = new Arrays();
+        FemtoCli.builder().registerType(int.class, s -> Integer.parseInt(s, 16)).run(cmd, "--ints=ff,10");
+        assertArrayEquals(new int[]{255, 16}, cmd.ints);
+    }
+
+    @Test
+    void bindsPrimitiveStreams() {
+        Streams cmd = new Streams();
+        RunResult res = FemtoCli.runCaptured(cmd, "--id", "3", "--id", "4", "7", "8", "9");
+        assertEquals(0, res.exitCode(), res.err());
+        assertArrayEquals(new int[]{3, 4}, cmd.ids.toArray());
+        assertEquals(3.0, cmd.weights.sum());
+        assertArrayEquals(new long[]{7, 8, 9}, cmd.offsets.toArray());
+
+        RunResult help = FemtoCli.runCaptured(new Streams(), "--help");
+        assertThat(help.out()).contains("[<offsets>...]");
+    }
+}
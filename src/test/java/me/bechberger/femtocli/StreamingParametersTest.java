@@ -0,0 +1,192 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+import me.bechberger.femtocli.annotations.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code Consumer}, {@code Iterator} and {@code Stream} parameters get their values one at a time.
+ */
+class StreamingParametersTest {
+
+    @Command(name = "sum")
+    static class Sum implements Callable<Integer> {
+        @Parameters(paramLabel = "N", verifierMethod = "checkPositive")
+        Iterator<Integer> numbers;
+
+        long sum;
+        int consumed;
+
+        @Override
+        public Integer call() {
+            while (numbers.hasNext()) {
+                sum += numbers.next();
+                consumed++;
+            }
+            return 0;
+        }
+
+        void checkPositive(Object value) {
+            if ((Integer) value <= 0) throw new VerifierException("must be positive");
+        }
+    }
+
+    @Command(name = "paths")
+    static class Paths implements Runnable {
+        @Option(names = "--prefix", defaultValue = "")
+        String prefix;
+
+        @Parameters
+        Stream<Path> paths;
+
+        String joined;
+
+        @Override
+        public void run() {
+            joined = paths.map(p -> prefix + p.getFileName()).collect(Collectors.joining(","));
+        }
+    }
+
+    @Command(name = "count")
+    static class Count implements Runnable {
+        @Parameters
+        Stream<Integer> nums;
+
+        long count;
+
+        @Override
+        public void run() {
+            count = nums.count();
+        }
+    }
+
+    @Command(name = "words")
+    static class Words implements Runnable {
+        @Option(names = "-n")
+        boolean numbered;
+
+        @Parameters
+        Iterator<String> words;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "collect")
+    static class Collect implements Runnable {
+        final List<Path> seen = new ArrayList<>();
+
+        @Parameters(index = "0")
+        String first;
+
+        @Parameters(index = "1..*")
+        Consumer<? super Path> sink = seen::add;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    void iteratorConvertsWhileTheCommandConsumes() {
+        Sum cmd = new Sum();
+        RunResult res = FemtoCli.runCaptured(cmd, "1", "2", "3");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals(6, cmd.sum);
+        assertEquals(3, cmd.consumed);
+    }
+
+    @Test
+    void invalidValuesAreUsageErrorsWhenReached() {
+        Sum cmd = new Sum();
+        RunResult res = FemtoCli.runCaptured(cmd, "1", "2", "0", "4");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains("Error: must be positive", "Usage: sum [-hV] [N...]");
+        assertEquals(2, cmd.consumed);
+
+        RunResult invalid = FemtoCli.runCaptured(new Sum(), "1", "x");
+        assertEquals(2, invalid.exitCode());
+        assertThat(invalid.err()).contains("Invalid value for N: For input string: \"x\"");
+    }
+
+    @Test
+    void streamIsLazyAndEmptyWithoutValues() {
+        Paths cmd = new Paths();
+        assertEquals(0, FemtoCli.runCaptured(cmd, "--prefix=p:", "/a/x", "b/y").exitCode());
+        assertEquals("p:x,p:y", cmd.joined);
+
+        Paths empty = new Paths();
+        assertEquals(0, FemtoCli.runCaptured(empty).exitCode());
+        assertEquals("", empty.joined);
+    }
+
+    @Test
+    void countConvertsEveryValue() {
+        Count cmd = new Count();
+        assertEquals(0, FemtoCli.runCaptured(cmd, "1", "2", "3").exitCode());
+        assertEquals(3, cmd.count);
+
+        RunResult invalid = FemtoCli.runCaptured(new Count(), "1", "x", "3");
+        assertEquals(2, invalid.exitCode());
+        assertThat(invalid.err()).contains("Invalid value for <nums>: For input string: \"x\"");
+    }
+
+    @Test
+    void trailingParameterReadsArgumentFilesOnlyAsFarAsConsumed(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("words");
+        // the unterminated quote is only found when the command gets to it
+        Files.writeString(file, "a b --prefix -h 'x");
+        Words cmd = (Words) FemtoCli.builder().commandConfig(c -> c.expandArgFiles = true)
+                .parse(new Words(), "-n", "@" + file);
+        assertTrue(cmd.numbered);
+        Iterator<String> words = cmd.words;
+        assertEquals(List.of("a", "b", "--prefix", "-h"), List.of(words.next(), words.next(), words.next(), words.next()));
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, words::next);
+        assertThat(ex.getMessage()).contains("Unterminated quote in argument file");
+    }
+
+    @Test
+    void trailingParameterTakesOptionsAfterItsFirstValueAsValues() {
+        Words cmd = (Words) FemtoCli.parse(new Words(), "a", "-n", "--", "b");
+        assertFalse(cmd.numbered);
+        List<Object> words = new ArrayList<>();
+        cmd.words.forEachRemaining(words::add);
+        assertEquals(List.of("a", "-n", "--", "b"), words);
+    }
+
+    @Test
+    void consumerReceivesValuesDuringParsing() {
+        Collect cmd = (Collect) FemtoCli.parse(new Collect(), "first", "a", "b");
+        assertEquals("first", cmd.first);
+        assertEquals(List.of(Path.of("a"), Path.of("b")), cmd.seen);
+    }
+
+    @Test
+    void parseModeReportsLazyErrorsAsIllegalArgument() {
+        Sum cmd = (Sum) FemtoCli.parse(new Sum(), "1", "0");
+        assertEquals(1, cmd.numbers.next());
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, cmd.numbers::next);
+        assertEquals("must be positive", ex.getMessage());
+        assertFalse(cmd.numbers.hasNext());
+    }
+}
@@ -0,0 +1,94 @@
+package me.bechberger.femtocli;
+
+import me.bechberger.femtocli.annotations.Command;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Subcommand lookup goes through a per-class name table; it must resolve names exactly like
+ * the former linear scan over {@code subcommands()} and {@code @Command} methods.
+ */
+class SubcommandDispatchTest {
+
+    @Command(name = "root", subcommands = {OldRun.class, NewRun.class, Status.class})
+    static class Root implements Runnable {
+        @Command(name = "status", description = "Method status")
+        int status() {
+            System.out.println("method status");
+            return 0;
+        }
+
+        @Command(name = "ping")
+        int ping() {
+            System.out.println("pong");
+            return 0;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Command(name = "run", description = "Old run")
+    static class OldRun implements Runnable {
+        @Override
+        public void run() {
+            System.out.println("old");
+        }
+    }
+
+    @Command(name = "run", description = "New run")
+    static class NewRun implements Runnable {
+        @Override
+        public void run() {
+            System.out.println("new");
+        }
+    }
+
+    @Command(name = "status", description = "Class status")
+    static class Status implements Runnable {
+        @Override
+        public void run() {
+            System.out.println("class status");
+        }
+    }
+
+    @Test
+    void firstDeclaredClassWinsForDuplicateNames() {
+        RunResult res = FemtoCli.runCaptured(new Root(), "run");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals("old", res.out().trim());
+    }
+
+    @Test
+    void removedClassFallsThroughToNextClassWithSameName() {
+        RunResult res = FemtoCli.builder().removeCommands(OldRun.class).runCaptured(new Root(), "run");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals("new", res.out().trim());
+    }
+
+    @Test
+    void classSubcommandsTakePrecedenceOverMethods() {
+        assertEquals("class status", FemtoCli.runCaptured(new Root(), "status").out().trim());
+
+        RunResult res = FemtoCli.builder().removeCommands(Status.class).runCaptured(new Root(), "status");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals("method status", res.out().trim());
+    }
+
+    @Test
+    void methodSubcommandsAreFound() {
+        RunResult res = FemtoCli.runCaptured(new Root(), "ping");
+        assertEquals(0, res.exitCode(), res.err());
+        assertEquals("pong", res.out().trim());
+    }
+
+    @Test
+    void unknownNamesAreStillRejected() {
+        RunResult res = FemtoCli.runCaptured(new Root(), "nope");
+        assertEquals(2, res.exitCode());
+        assertThat(res.err()).contains("nope");
+    }
+}